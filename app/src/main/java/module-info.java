@@ -4,7 +4,8 @@ module com.games.jezzball.games {
 
     requires org.kordamp.ikonli.javafx;
     requires com.google.common;
+    requires com.games.jezzball.engine;
 
     opens com.games.jezzball.games to javafx.fxml;
     exports com.games.jezzball.games;
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package com.games.jezzball.games.files2;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A reproducible JezzBall arena shared by the collision benchmarks: a square arena enclosed by four stationary walls, filled with equal-radius balls and a number of inner walls that are either
+ * stationary or growing.
+ * <p>
+ * Every parameter can be overridden from the command line, for example {@code -p ballCount=10000 -p growingWalls=true}, or {@code -p eventQueueType=INDEXED_HEAP,CALENDAR} to compare the event
+ * queues in a running arena. A positive {@code parallelism} runs the simulation in parallel mode on a pool of that many threads. {@code restitution} and {@code clusterIterations} set up the
+ * simulation's collisions, for example {@code -p restitution=0.5 -p clusterIterations=0,8} to compare cluster mode in an inelastic arena.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.3
+ */
+@State(Scope.Thread)
+public class ArenaScenario {
+    public static final double BALL_RADIUS = 4.0;
+    public static final double BALL_SPEED  = 20.0;
+    public static final double WALL_SIZE   = 4.0;
+    public static final double TICK        = 1.0 / 60.0;
+
+    @Param({"100", "1000", "10000"})
+    public int ballCount;
+
+    @Param({"0", "16"})
+    public int wallCount;
+
+    @Param({"1000", "4000"})
+    public double arenaSize;
+
+    @Param({"false", "true"})
+    public boolean growingWalls;
+
+    @Param({"QUAD_TREE"})
+    public BroadPhaseType broadPhaseType;
+
+    @Param({"0"})
+    public int parallelism;
+
+    @Param({"INDEXED_HEAP"})
+    public EventQueueType eventQueueType;
+
+    @Param({"1.0"})
+    public double restitution;
+
+    @Param({"0"})
+    public int clusterIterations;
+
+    public Rectangle    arena;
+    public List<Ball>   balls;
+    public List<Wall>   walls;
+    public ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        double           min    = WALL_SIZE + BALL_RADIUS;
+        double           max    = arenaSize - min;
+
+        arena = new Rectangle(0, 0, arenaSize, arenaSize);
+        walls = new ArrayList<>(wallCount + 4);
+        walls.add(stationaryWall(new Coordinate(arenaSize / 2, 0), new Coordinate(arenaSize, 0), new Coordinate(0, 0)));
+        walls.add(stationaryWall(new Coordinate(arenaSize / 2, arenaSize), new Coordinate(arenaSize, arenaSize), new Coordinate(0, arenaSize)));
+        walls.add(stationaryWall(new Coordinate(0, arenaSize / 2), new Coordinate(0, arenaSize), new Coordinate(0, 0)));
+        walls.add(stationaryWall(new Coordinate(arenaSize, arenaSize / 2), new Coordinate(arenaSize, arenaSize), new Coordinate(arenaSize, 0)));
+
+        for (int i = 0; i < wallCount; i++) {
+            double  x          = random.nextDouble(min, max);
+            double  y          = random.nextDouble(min, max);
+            boolean horizontal = random.nextBoolean();
+            Coordinate start   = new Coordinate(x, y);
+            Coordinate target1 = horizontal ? new Coordinate(arenaSize, y) : new Coordinate(x, arenaSize);
+            Coordinate target2 = horizontal ? new Coordinate(0, y) : new Coordinate(x, 0);
+            walls.add(growingWalls ? new Wall(start, WALL_SIZE, 1, true, target1, target2, null, null) : stationaryWall(start, target1, target2));
+        }
+
+        balls = new ArrayList<>(ballCount);
+        for (int i = 0; i < ballCount; i++) {
+            balls.add(new Ball(new Coordinate(random.nextDouble(min, max), random.nextDouble(min, max)), BALL_SPEED, random.nextDouble(2 * Math.PI), BALL_RADIUS, 1.0));
+        }
+        pool = parallelism > 0 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Creates a simulation holding this scenario's balls and walls, indexed by the scenario's broad-phase, scheduled in the scenario's event queue and resolving collisions as the scenario sets.
+     *
+     * @return The new simulation.
+     */
+    public Collision newCollision() {
+        Collision collision = new Collision(0, 0, TICK * 4, broadPhaseType.create(arena, BALL_RADIUS), pool, eventQueueType);
+        collision.setRestitution(restitution);
+        collision.setClusterIterations(clusterIterations);
+        walls.forEach(collision::addWall);
+        balls.forEach(collision::addBall);
+        return collision;
+    }
+
+    private static Wall stationaryWall(Coordinate start, Coordinate target1, Coordinate target2) {
+        return new Wall(start, WALL_SIZE, 0, false, target1, target2, null, null);
+    }
+}
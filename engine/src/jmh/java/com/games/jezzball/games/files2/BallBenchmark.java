@@ -0,0 +1,54 @@
+package com.games.jezzball.games.files2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the narrow-phase predictions of a single ball, cycling through the balls and walls of the scenario so branch prediction sees a realistic mix of hits and misses.
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BallBenchmark {
+    private List<Ball> balls;
+    private List<Wall> walls;
+    private int        next;
+
+    @Setup
+    public void setUp(ArenaScenario scenario) {
+        balls = scenario.balls;
+        walls = scenario.walls;
+    }
+
+    @Benchmark
+    public Optional<CollisionDetail<Ball, Ball>> willCollideWith() {
+        int i = next++;
+        return balls.get(Math.floorMod(i, balls.size()))
+                    .willCollideWith(balls.get(Math.floorMod(i * 31 + 7, balls.size())));
+    }
+
+    @Benchmark
+    public Optional<CollisionDetail<Ball, Wall>> willCollideWithWall() {
+        int i = next++;
+        return balls.get(Math.floorMod(i, balls.size()))
+                    .willCollideWithWall(walls.get(Math.floorMod(i, walls.size())));
+    }
+}
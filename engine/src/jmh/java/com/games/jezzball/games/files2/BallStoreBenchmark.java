@@ -0,0 +1,88 @@
+package com.games.jezzball.games.files2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the column loops of {@link BallStore} with the same work done one {@link Ball} handle at a time: moving every ball, and solving one ball's time of impact against a batch of candidates.
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")  // Enables the SIMD narrow-phase
+public class BallStoreBenchmark {
+    private static final double RADIUS     = 4.0;
+    private static final double SPEED      = 20.0;
+    private static final double STEP       = 1.0 / 60.0;
+    private static final int    BATCH_SIZE = 64;
+
+    @Param({"1000", "100000"})
+    private int ballCount;
+
+    private BallStore store;
+    private int[]     candidates;
+    private double[]  times;
+    private int       next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        double           side   = Math.sqrt(ballCount * 400.0);
+
+        store = new BallStore(ballCount);
+        for (int i = 0; i < ballCount; i++) {
+            double direction = random.nextDouble(2 * Math.PI);
+            store.add(random.nextDouble(side), random.nextDouble(side), SPEED * Math.cos(direction), SPEED * Math.sin(direction), RADIUS, 1.0);
+        }
+
+        candidates = new int[BATCH_SIZE];
+        times      = new double[BATCH_SIZE];
+        for (int k = 0; k < BATCH_SIZE; k++) {
+            candidates[k] = random.nextInt(ballCount);
+        }
+    }
+
+    @Benchmark
+    public void advanceAll() {
+        store.advanceAll(STEP);
+    }
+
+    @Benchmark
+    public void advanceEachBall() {
+        for (int i = 0; i < ballCount; i++) {
+            store.get(i)
+                 .advance(STEP);
+        }
+    }
+
+    @Benchmark
+    public int timesOfImpact() {
+        return store.timesOfImpact(next++ % ballCount, candidates, BATCH_SIZE, times);
+    }
+
+    @Benchmark
+    public void willCollideWithEach(Blackhole blackhole) {
+        Ball ball = store.get(next++ % ballCount);
+        for (int k = 0; k < BATCH_SIZE; k++) {
+            blackhole.consume(ball.willCollideWith(store.get(candidates[k])));
+        }
+    }
+}
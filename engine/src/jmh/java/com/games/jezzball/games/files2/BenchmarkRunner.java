@@ -0,0 +1,50 @@
+package com.games.jezzball.games.files2;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Entry point of the benchmark profile. Accepts the regular JMH command line and adds what every tracked run needs: the GC profiler for allocation rates, and JSON results written to
+ * {@code target/jmh/<timestamp>.json} unless {@code -rff} names another file.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec}, or pass JMH options through {@code -Dexec.args}, for example {@code -Dexec.args="-classpath %classpath
+ * com.games.jezzball.games.files2.BenchmarkRunner CollisionBenchmark -p ballCount=1000"}.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+public final class BenchmarkRunner {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions    commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options     = new OptionsBuilder().parent(commandLine)
+                                                                .addProfiler(GCProfiler.class)
+                                                                .resultFormat(ResultFormatType.JSON);
+        if (!commandLine.getResult()
+                        .hasValue()) {
+            Path result = Path.of("target", "jmh", LocalDateTime.now()
+                                                                .format(TIMESTAMP) + ".json");
+            Files.createDirectories(result.getParent());
+            options.result(result.toString());
+        }
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,100 @@
+package com.games.jezzball.games.files2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the broad-phase implementations on one simulated tick: every ball moves a little, is updated in the index and queries the neighbourhood it can reach.
+ * <p>
+ * Balls share one radius and are spread at constant density, so the arena grows with the ball count.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadPhaseBenchmark {
+    private static final double RADIUS        = 4.0;
+    private static final double AREA_PER_BALL = 400.0;
+    private static final double STEP          = 1.0;
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int ballCount;
+
+    @Param({"QUAD_TREE", "SWEEP_AND_PRUNE", "SPATIAL_HASH_GRID"})
+    private BroadPhaseType broadPhaseType;
+
+    private BroadPhase   broadPhase;
+    private List<Ball>   balls;
+    private List<Ball>   buffer;
+    private double[]     stepX;
+    private double[]     stepY;
+    private double       side;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        side = Math.sqrt(ballCount * AREA_PER_BALL);
+
+        broadPhase = broadPhaseType.create(new Rectangle(0, 0, side, side), RADIUS);
+        balls      = new ArrayList<>(ballCount);
+        buffer     = new ArrayList<>();
+        stepX      = new double[ballCount];
+        stepY      = new double[ballCount];
+        for (int i = 0; i < ballCount; i++) {
+            double direction = random.nextDouble(2 * Math.PI);
+            Ball   ball      = new Ball(new Coordinate(random.nextDouble(RADIUS, side - RADIUS), random.nextDouble(RADIUS, side - RADIUS)), STEP, direction, RADIUS, 1.0);
+            stepX[i] = STEP * Math.cos(direction);
+            stepY[i] = STEP * Math.sin(direction);
+            balls.add(ball);
+            broadPhase.insert(ball);
+        }
+    }
+
+    @Benchmark
+    public int tick() {
+        int found = 0;
+        for (int i = 0; i < ballCount; i++) {
+            Ball       ball     = balls.get(i);
+            Coordinate position = ball.getPosition();
+            double     x        = position.x() + stepX[i];
+            double     y        = position.y() + stepY[i];
+
+            // Bounce off the arena edges so the density stays constant
+            if (x < RADIUS || x > side - RADIUS) {
+                stepX[i] = -stepX[i];
+                x        = position.x() + stepX[i];
+            }
+            if (y < RADIUS || y > side - RADIUS) {
+                stepY[i] = -stepY[i];
+                y        = position.y() + stepY[i];
+            }
+            ball.setPosition(new Coordinate(x, y));
+            broadPhase.update(ball);
+
+            double reach = 2 * RADIUS + STEP;
+            buffer.clear();
+            found += broadPhase.queryRange(x - reach, y - reach, x + reach, y + reach, Ball.class, buffer);
+        }
+        return found;
+    }
+}
@@ -0,0 +1,42 @@
+package com.games.jezzball.games.files2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one {@link Collision#update(double)} tick of a running arena. The simulation keeps running across invocations, so the numbers describe a settled arena rather than the first ticks.
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")  // Enables the SIMD narrow-phase
+public class CollisionBenchmark {
+    private Collision collision;
+
+    @Setup
+    public void setUp(ArenaScenario scenario) {
+        collision = scenario.newCollision();
+        collision.update(ArenaScenario.TICK);
+    }
+
+    @Benchmark
+    public double update() {
+        collision.update(ArenaScenario.TICK);
+        return collision.getCurrentTime();
+    }
+}
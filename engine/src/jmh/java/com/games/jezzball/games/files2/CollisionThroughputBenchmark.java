@@ -0,0 +1,98 @@
+package com.games.jezzball.games.files2;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many collisions a running arena resolves per second, and checks that resolving them keeps the kinetic energy of the balls.
+ * <p>
+ * Each invocation runs one {@link Collision#update(double)} tick and counts the collisions it resolved, leaving out the rechecks, into the {@code events} counter, which JMH reports as events per
+ * second next to the ticks. Run it at the size the number is tracked at with {@code -p ballCount=10000 -p growingWalls=false}.
+ * </p>
+ * <p>
+ * With the default restitution every collision is perfectly elastic and walls do not give way, since a growing end stops where a ball touches it, so the total kinetic energy of the balls
+ * only changes by rounding. It is taken when the simulation is set up, and tearing the trial down fails the run if it drifted by more than {@link #MAX_ENERGY_DRIFT} relative to it. Inelastic
+ * collisions take energy away, so arenas with a restitution below 1 are not checked. Comparing {@code -p clusterIterations=0,8} in a dense arena shows how many events cluster mode saves.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")  // Enables the SIMD narrow-phase
+public class CollisionThroughputBenchmark {
+    private static final double MAX_ENERGY_DRIFT = 1e-9;
+
+    private Collision  collision;
+    private List<Ball> balls;
+    private boolean    conserving;     // Whether the arena keeps its energy, so the drift is checked
+    private double     initialEnergy;
+
+    /**
+     * The collisions resolved, reset for every iteration so that JMH can turn them into a rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Events {
+        public long events;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            events = 0;
+        }
+    }
+
+    @Setup
+    public void setUp(ArenaScenario scenario) {
+        collision     = scenario.newCollision();
+        balls         = scenario.balls;
+        conserving    = scenario.restitution == 1;
+        initialEnergy = kineticEnergy();
+        collision.update(ArenaScenario.TICK);
+    }
+
+    @Benchmark
+    public double update(Events counters) {
+        long resolved = collision.getResolvedCount();
+        collision.update(ArenaScenario.TICK);
+        counters.events += collision.getResolvedCount() - resolved;
+        return collision.getCurrentTime();
+    }
+
+    @TearDown
+    public void checkEnergy() {
+        if (!conserving) {
+            return;
+        }
+        double drift = Math.abs(kineticEnergy() - initialEnergy) / initialEnergy;
+        if (drift > MAX_ENERGY_DRIFT) {
+            throw new IllegalStateException("Kinetic energy drifted by " + drift + " of " + initialEnergy + " over " + collision.getResolvedCount() + " collisions");
+        }
+    }
+
+    private double kineticEnergy() {
+        double energy = 0;
+        for (Ball ball : balls) {
+            energy += 0.5 * ball.getMass() * (ball.getVx() * ball.getVx() + ball.getVy() * ball.getVy());
+        }
+        return energy;
+    }
+}
@@ -0,0 +1,93 @@
+package com.games.jezzball.games.files2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the event queues on the stream of events a running arena produces, without the physics around it.
+ * <p>
+ * Every ball is predicted the way {@link Collision} predicts it: its pending events are invalidated, it may hit another ball or a wall somewhere within the horizon, and a recheck is scheduled at the
+ * end of the horizon. Each invocation resolves the earliest event and predicts its balls again. All balls start out predicted at once, so the first rechecks are due together, as they are after
+ * a new arena is scheduled, and spread out as the balls collide. {@code hitChance} is the chance a prediction finds a hit: a few percent matches {@link ArenaScenario}'s sparse arenas, where almost
+ * every event is a recheck, and higher values stand for crowded ones.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventQueueBenchmark {
+    private static final double HORIZON     = ArenaScenario.TICK * 4;
+    private static final int    WALL_COUNT  = 20;
+    private static final double WALL_CHANCE = 0.2;  // Share of the hits that are with a wall
+
+    @Param({"1000", "10000"})
+    private int ballCount;
+
+    @Param({"0.02", "0.3"})
+    private double hitChance;
+
+    @Param({"INDEXED_HEAP", "CALENDAR"})
+    private EventQueueType eventQueueType;
+
+    private EventQueue       queue;
+    private SplittableRandom random;
+    private double           now;
+
+    @Setup
+    public void setUp() {
+        queue  = eventQueueType.create();
+        random = new SplittableRandom(42);
+        now    = 0;
+        for (int ball = 0; ball < ballCount; ball++) {
+            predict(ball);
+        }
+    }
+
+    @Benchmark
+    public int resolveNext() {
+        int event = queue.poll();
+        now = queue.getTime(event);
+        int first  = queue.getFirst(event);
+        int second = queue.getSecond(event);
+        EventQueue.Kind kind = queue.getKind(event);
+        queue.free(event);
+
+        predict(first);
+        if (kind == EventQueue.Kind.BALL_BALL) {
+            predict(second);
+        }
+        return queue.size();
+    }
+
+    private void predict(int ball) {
+        queue.invalidateBall(ball);
+        if (random.nextDouble() < hitChance) {
+            double time = now + random.nextDouble(HORIZON);
+            if (random.nextDouble() < WALL_CHANCE) {
+                queue.offer(EventQueue.Kind.BALL_WALL, time, 0, 0, ball, random.nextInt(WALL_COUNT), 0, 0);
+            } else {
+                int other = random.nextInt(ballCount - 1);
+                queue.offer(EventQueue.Kind.BALL_BALL, time, 0, 0, ball, other < ball ? other : other + 1, 0, 0);
+            }
+        }
+        queue.push(EventQueue.Kind.RECHECK, now + HORIZON, 0, 0, ball, EventQueue.NONE, 0, 0);
+    }
+}
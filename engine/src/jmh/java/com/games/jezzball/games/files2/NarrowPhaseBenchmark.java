@@ -0,0 +1,89 @@
+package com.games.jezzball.games.files2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and the SIMD batched ball-ball time of impact on the same columns, for one ball against a batch of candidates and for a batch of independent pairs.
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class NarrowPhaseBenchmark {
+    private static final int    BALL_COUNT = 4096;
+    private static final double SIDE       = 1000.0;
+
+    @Param({"16", "64", "256"})
+    private int batchSize;
+
+    private final NarrowPhase scalar = new ScalarNarrowPhase();
+    private final NarrowPhase vector = new VectorNarrowPhase();
+
+    private double[] x, y, vx, vy, radius;
+    private int[]    first, second;
+    private double[] times;
+    private int      next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        x      = new double[BALL_COUNT];
+        y      = new double[BALL_COUNT];
+        vx     = new double[BALL_COUNT];
+        vy     = new double[BALL_COUNT];
+        radius = new double[BALL_COUNT];
+        for (int i = 0; i < BALL_COUNT; i++) {
+            x[i]      = random.nextDouble(SIDE);
+            y[i]      = random.nextDouble(SIDE);
+            vx[i]     = random.nextDouble(-20, 20);
+            vy[i]     = random.nextDouble(-20, 20);
+            radius[i] = 4.0;
+        }
+
+        first  = new int[batchSize];
+        second = new int[batchSize];
+        times  = new double[batchSize];
+        for (int k = 0; k < batchSize; k++) {
+            first[k]  = random.nextInt(BALL_COUNT);
+            second[k] = random.nextInt(BALL_COUNT);
+        }
+    }
+
+    @Benchmark
+    public int scalarOneAgainstBatch() {
+        return scalar.timesOfImpact(x, y, vx, vy, radius, next++ & (BALL_COUNT - 1), second, batchSize, times);
+    }
+
+    @Benchmark
+    public int vectorOneAgainstBatch() {
+        return vector.timesOfImpact(x, y, vx, vy, radius, next++ & (BALL_COUNT - 1), second, batchSize, times);
+    }
+
+    @Benchmark
+    public int scalarPairs() {
+        return scalar.timesOfImpact(x, y, vx, vy, radius, first, second, batchSize, times);
+    }
+
+    @Benchmark
+    public int vectorPairs() {
+        return vector.timesOfImpact(x, y, vx, vy, radius, first, second, batchSize, times);
+    }
+}
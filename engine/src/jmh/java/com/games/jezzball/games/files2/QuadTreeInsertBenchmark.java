@@ -0,0 +1,45 @@
+package com.games.jezzball.games.files2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rebuilding a QuadTree from scratch with every ball and wall of the scenario, the cost {@link QuadTree#update(SpatialObject)} avoids.
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuadTreeInsertBenchmark {
+    private ArenaScenario scenario;
+    private QuadTree      tree;
+
+    @Setup
+    public void setUp(ArenaScenario scenario) {
+        this.scenario = scenario;
+        this.tree     = new QuadTree(0, scenario.arena);
+    }
+
+    @Benchmark
+    public int insert() {
+        tree.clear();
+        scenario.walls.forEach(tree::insert);
+        scenario.balls.forEach(tree::insert);
+        return tree.size();
+    }
+}
@@ -0,0 +1,97 @@
+package com.games.jezzball.games.files2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a fixed-size range query against a growing number of balls spread at constant density, so the arena grows with the ball count while every query returns roughly the same number of hits.
+ * <p>
+ * {@code queryRange} should stay close to flat as the count grows, while {@code linearScan}, which tests every ball, grows linearly and serves as the baseline.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuadTreeQueryBenchmark {
+    private static final double RADIUS        = 2.0;
+    private static final double AREA_PER_BALL = 400.0;
+    private static final double QUERY_SIZE    = 40.0;
+    private static final int    QUERY_COUNT   = 256;
+
+    @Param({"1000", "10000", "100000"})
+    private int ballCount;
+
+    private QuadTree   tree;
+    private List<Ball> balls;
+    private List<Ball> buffer;
+    private double[]   queryX;
+    private double[]   queryY;
+    private int        next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        double           side   = Math.sqrt(ballCount * AREA_PER_BALL);
+
+        tree   = new QuadTree(0, new Rectangle(0, 0, side, side));
+        balls  = new ArrayList<>(ballCount);
+        buffer = new ArrayList<>();
+        for (int i = 0; i < ballCount; i++) {
+            Ball ball = new Ball(new Coordinate(random.nextDouble(RADIUS, side - RADIUS), random.nextDouble(RADIUS, side - RADIUS)), 1.0, random.nextDouble(2 * Math.PI), RADIUS, 1.0);
+            balls.add(ball);
+            tree.insert(ball);
+        }
+
+        queryX = new double[QUERY_COUNT];
+        queryY = new double[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queryX[i] = random.nextDouble(side - QUERY_SIZE);
+            queryY[i] = random.nextDouble(side - QUERY_SIZE);
+        }
+    }
+
+    @Benchmark
+    public int queryRange() {
+        int    i = next++ & (QUERY_COUNT - 1);
+        double x = queryX[i];
+        double y = queryY[i];
+
+        buffer.clear();
+        return tree.queryRange(x, y, x + QUERY_SIZE, y + QUERY_SIZE, Ball.class, buffer);
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        int    i = next++ & (QUERY_COUNT - 1);
+        double x = queryX[i];
+        double y = queryY[i];
+
+        for (Ball ball : balls) {
+            AABB aabb = ball.getAABB();
+            if (aabb.minX() <= x + QUERY_SIZE && aabb.maxX() >= x && aabb.minY() <= y + QUERY_SIZE && aabb.maxY() >= y) {
+                blackhole.consume(ball);
+            }
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.games.jezzball.games.files2;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs many independent {@link Collision} worlds side by side on a fixed tick cadence, without any user interface.
+ * <p>
+ * Every arena is driven by a thread of its own, by default a virtual thread. It updates its world by one tick, records how long the update took and parks until its next deadline, so thousands of
+ * arenas share a carrier pool the size of the machine. A deadline that has already passed when an update ends is not caught up with: the next tick starts right away and the cadence restarts from
+ * there, so an arena that fell behind does not burst.
+ * </p>
+ * <p>
+ * An update that takes longer than the budget is an overrun. After {@value #OVERRUNS_TO_SLOW} overruns in a row an arena is slowed down: the interval between its ticks doubles, so its game runs in
+ * slow motion instead of starving the others, and after {@value #TICKS_TO_RECOVER} ticks in a row within the budget the interval halves again. An arena that keeps overrunning at
+ * {@value #MAX_SLOWDOWN} times the interval is shed: its thread stops and it is removed from the host.
+ * </p>
+ * <p>
+ * An update that throws fails its arena: the exception is kept, the arena's status becomes {@link Status#FAILED} and it is removed from the host. An update that does not return within the hang
+ * limit cannot be waited for: a watchdog thread sheds its arena, interrupts its thread and leaves it behind, and whatever the update does when it returns is discarded. Closing the host waits for the
+ * running updates at most as long as the hang limit as well, and leaves the threads that are still busy behind the same way.
+ * </p>
+ * <p>
+ * A world is only ever touched by its arena's thread, so it must not be used elsewhere while the arena runs. Its statistics can be read from any thread.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.1
+ */
+public class ArenaHost implements AutoCloseable {
+    private static final int  OVERRUNS_TO_SLOW = 3;
+    private static final int  TICKS_TO_RECOVER = 60;
+    private static final int  MAX_SLOWDOWN     = 8;
+    private static final int  HANG_BUDGETS     = 100;  // The default hang limit, in budgets
+    private static final long IDLE             = Long.MIN_VALUE;
+
+    public enum Status {
+        RUNNING,
+        SLOWED,
+        SHED,
+        FAILED,
+        STOPPED;
+
+        /**
+         * @return True if the arena no longer runs.
+         */
+        public boolean isFinal() {
+            return this == SHED || this == FAILED || this == STOPPED;
+        }
+    }
+
+    private final double        tickSeconds;
+    private final long          tickNanos;
+    private final long          budgetNanos;
+    private final long          hangNanos;
+    private final ThreadFactory threadFactory;
+    private final List<Arena>   arenas = new CopyOnWriteArrayList<>();
+    private volatile boolean    closed;
+    private Thread              watchdog;  // Guarded by this
+
+    /**
+     * Constructs a host that runs every arena on a virtual thread of its own.
+     *
+     * @param tick
+     *         The simulated time of one tick, also the wall-clock interval between ticks.
+     * @param budget
+     *         How long one update may take before it counts as an overrun.
+     */
+    public ArenaHost(Duration tick, Duration budget) {
+        this(tick, budget, Thread.ofVirtual()
+                                 .name("arena-", 0)
+                                 .factory());
+    }
+
+    /**
+     * Constructs a host that runs every arena on a thread created by the given factory, for example platform threads of a dedicated carrier pool.
+     *
+     * @param tick
+     *         The simulated time of one tick, also the wall-clock interval between ticks.
+     * @param budget
+     *         How long one update may take before it counts as an overrun.
+     * @param threadFactory
+     *         Creates the thread of every arena.
+     */
+    public ArenaHost(Duration tick, Duration budget, ThreadFactory threadFactory) {
+        this(tick, budget, budget.multipliedBy(HANG_BUDGETS), threadFactory);
+    }
+
+    /**
+     * Constructs a host that runs every arena on a thread created by the given factory and gives up on updates that take longer than the hang limit.
+     *
+     * @param tick
+     *         The simulated time of one tick, also the wall-clock interval between ticks.
+     * @param budget
+     *         How long one update may take before it counts as an overrun.
+     * @param hangLimit
+     *         How long one update may take before its arena is shed without waiting for it, also how long closing the host waits for the running updates.
+     * @param threadFactory
+     *         Creates the thread of every arena.
+     */
+    public ArenaHost(Duration tick, Duration budget, Duration hangLimit, ThreadFactory threadFactory) {
+        if (tick.isNegative() || tick.isZero() || budget.isNegative() || budget.isZero() || hangLimit.isNegative() || hangLimit.isZero()) {
+            throw new IllegalArgumentException("Tick, budget and hang limit must be positive");
+        }
+        this.tickNanos     = tick.toNanos();
+        this.tickSeconds   = tickNanos / 1e9;
+        this.budgetNanos   = budget.toNanos();
+        this.hangNanos     = hangLimit.toNanos();
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Starts running a world. Its first tick starts right away.
+     *
+     * @param collision
+     *         The world to run, which from now on belongs to the arena's thread.
+     *
+     * @return The running arena.
+     *
+     * @throws IllegalStateException
+     *         if the host has been closed.
+     */
+    public Arena add(Collision collision) {
+        Arena arena = new Arena(collision);
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Host is closed");
+            }
+            if (watchdog == null) {
+                // A platform thread, so that it still gets to run while hung updates occupy every carrier of the virtual threads
+                watchdog = Thread.ofPlatform()
+                                 .name("arena-watchdog")
+                                 .daemon()
+                                 .start(this::watch);
+            }
+            arenas.add(arena);
+        }
+        arena.thread.start();
+        return arena;
+    }
+
+    /**
+     * @return The arenas that are still running, in the order they were added.
+     */
+    public List<Arena> getArenas() {
+        return List.copyOf(arenas);
+    }
+
+    /**
+     * @return The number of arenas that are still running.
+     */
+    public int size() {
+        return arenas.size();
+    }
+
+    /**
+     * Stops every arena and waits for their threads to finish their current tick, at most as long as the hang limit. The threads that are still busy then, or all of them if the calling thread is
+     * interrupted, are interrupted and left behind.
+     */
+    @Override
+    public void close() {
+        Thread watcher;
+        synchronized (this) {
+            closed  = true;
+            watcher = watchdog;
+        }
+        if (watcher != null) {
+            LockSupport.unpark(watcher);
+        }
+        List<Arena> running = List.copyOf(arenas);
+        for (Arena arena : running) {
+            arena.stop();
+        }
+        long    deadline    = System.nanoTime() + hangNanos;
+        boolean interrupted = false;
+        for (Arena arena : running) {
+            long wait = deadline - System.nanoTime();
+            if (!interrupted && wait > 0) {
+                try {
+                    arena.thread.join(Duration.ofNanos(wait));
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (arena.thread.isAlive()) {
+                arena.abandon(Status.STOPPED);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread()
+                  .interrupt();
+        }
+    }
+
+    /**
+     * Run by the watchdog thread until the host is closed: sheds every arena whose update has been running for longer than the hang limit.
+     */
+    private void watch() {
+        long period = Math.max(hangNanos / 4, 1_000_000);
+        while (!closed) {
+            LockSupport.parkNanos(this, period);
+            long now = System.nanoTime();
+            for (Arena arena : arenas) {
+                long start = arena.tickStart;
+                if (start != IDLE && now - start > hangNanos) {
+                    arena.abandon(Status.SHED);
+                }
+            }
+        }
+    }
+
+    /**
+     * One world running on the host, together with the statistics of its ticks.
+     */
+    public final class Arena {
+        private final    Collision collision;
+        private final    Thread    thread;
+        private volatile boolean   stopped;
+        private volatile long      tickStart = IDLE;  // When the running update started, or IDLE between updates
+        private volatile Throwable failure;
+
+        // Once final, the status is never replaced
+        private final AtomicReference<TickStats> stats = new AtomicReference<>(new TickStats(Status.RUNNING, 0, 0, 1, 0, 0, 0, 0));
+
+        // Written by the arena's thread only
+        private int consecutiveOverruns;
+        private int consecutiveOnBudget;
+
+        private Arena(Collision collision) {
+            this.collision = collision;
+            this.thread    = threadFactory.newThread(this::run);
+        }
+
+        public Collision getCollision() {
+            return collision;
+        }
+
+        /**
+         * @return The statistics as of the last finished tick.
+         */
+        public TickStats getStats() {
+            return stats.get();
+        }
+
+        /**
+         * @return The exception an update threw, which made the arena fail, or null if none did.
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        /**
+         * Stops the arena after its current tick and removes it from the host.
+         */
+        public void stop() {
+            stopped = true;
+            LockSupport.unpark(thread);
+        }
+
+        private void run() {
+            long deadline = System.nanoTime();
+            try {
+                while (!stopped) {
+                    long start = System.nanoTime();
+                    tickStart = start;
+                    collision.update(tickSeconds);
+                    long end = System.nanoTime();
+                    tickStart = IDLE;
+                    if (!record(end - start, start - deadline)) {
+                        return;
+                    }
+
+                    deadline += tickNanos * stats.get()
+                                                 .slowdown();
+                    if (deadline < end) {
+                        deadline = end;
+                    }
+                    for (long wait = deadline - System.nanoTime(); wait > 0 && !stopped; wait = deadline - System.nanoTime()) {
+                        LockSupport.parkNanos(this, wait);
+                    }
+                }
+                finish(Status.STOPPED);
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                finish(Status.FAILED);
+            } finally {
+                tickStart = IDLE;
+                arenas.remove(this);
+            }
+        }
+
+        /**
+         * Gives up on the arena without waiting for its update to return: finishes it with the given status, removes it from the host and interrupts its thread.
+         */
+        private void abandon(Status status) {
+            stopped = true;
+            finish(status);
+            arenas.remove(this);
+            thread.interrupt();
+        }
+
+        /**
+         * Publishes the given final status, unless the arena has already finished.
+         */
+        private void finish(Status status) {
+            stats.updateAndGet(last -> last.status()
+                                           .isFinal() ? last
+                                                      : new TickStats(status, last.ticks(), last.overruns(), last.slowdown(), last.lastNanos(), last.maxNanos(), last.totalNanos(),
+                                                                      last.maxLatenessNanos()));
+        }
+
+        /**
+         * Publishes the statistics of a finished tick and adjusts the slowdown to the budget.
+         *
+         * @return False if the arena has been shed or has already finished.
+         */
+        private boolean record(long elapsed, long lateness) {
+            TickStats last     = stats.get();
+            if (last.status()
+                    .isFinal()) {
+                return false;
+            }
+            long      overruns = last.overruns();
+            int       slowdown = last.slowdown();
+            if (elapsed > budgetNanos) {
+                overruns++;
+                consecutiveOnBudget = 0;
+                if (++consecutiveOverruns >= OVERRUNS_TO_SLOW) {
+                    consecutiveOverruns = 0;
+                    if (slowdown == MAX_SLOWDOWN) {
+                        stats.compareAndSet(last, new TickStats(Status.SHED, last.ticks() + 1, overruns, slowdown, elapsed, Math.max(last.maxNanos(), elapsed), last.totalNanos() + elapsed,
+                                                                Math.max(last.maxLatenessNanos(), lateness)));
+                        return false;
+                    }
+                    slowdown *= 2;
+                }
+            } else {
+                consecutiveOverruns = 0;
+                if (slowdown > 1 && ++consecutiveOnBudget >= TICKS_TO_RECOVER) {
+                    consecutiveOnBudget = 0;
+                    slowdown /= 2;
+                }
+            }
+            Status status = slowdown > 1 ? Status.SLOWED : Status.RUNNING;
+            // Fails only if the watchdog or closing the host has finished the arena meanwhile
+            return stats.compareAndSet(last, new TickStats(status, last.ticks() + 1, overruns, slowdown, elapsed, Math.max(last.maxNanos(), elapsed), last.totalNanos() + elapsed,
+                                                           Math.max(last.maxLatenessNanos(), lateness)));
+        }
+    }
+
+    /**
+     * The statistics of an arena's ticks so far.
+     *
+     * @param status
+     *         Whether the arena runs at full cadence or slowed down, or why it no longer runs.
+     * @param ticks
+     *         The number of updates run.
+     * @param overruns
+     *         The number of updates that took longer than the budget.
+     * @param slowdown
+     *         The factor the interval between ticks is currently stretched by.
+     * @param lastNanos
+     *         How long the last update took.
+     * @param maxNanos
+     *         How long the slowest update took.
+     * @param totalNanos
+     *         How long all updates took together.
+     * @param maxLatenessNanos
+     *         The longest an update started after its deadline.
+     */
+    public record TickStats(Status status, long ticks, long overruns, int slowdown, long lastNanos, long maxNanos, long totalNanos, long maxLatenessNanos) {
+        /**
+         * @return The average time an update took, or zero before the first tick.
+         */
+        public double meanNanos() {
+            return ticks == 0 ? 0 : (double) totalNanos / ticks;
+        }
+    }
+}
@@ -0,0 +1,735 @@
+package com.games.jezzball.games.files2;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Represents a Ball in the JezzBall game, containing information about its position, velocity, radius, and mass.
+ * <p>
+ * A ball in the game is modeled as a circle in a 2D coordinate system. The ball has properties like position, velocity, radius, and mass.
+ * </p>
+ * <p>
+ * The velocity is kept as its Cartesian components, so predicting and resolving collisions needs no trigonometry. Speed and direction are derived from the components for callers that think in
+ * angles, with {@link StrictMath} so that they come out the same on every JVM. The components can also be read and set as {@link FixedPoint} numbers.
+ * </p>
+ * <p>
+ * A ball does not hold its state itself: it is a handle onto a slot of a {@link BallStore}, which keeps the state of many balls in primitive columns. A ball constructed on its own gets a private
+ * store; a simulation moves the balls it is given into its own store so it can process them in bulk.
+ * </p>
+ * <p>
+ * A ball takes no locks. Whenever it needs more than one property at a time it reads them as one snapshot from its store, which never sees half of an update made by the simulation thread, so
+ * queries from other threads neither block nor get blocked.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.17
+ */
+public final class Ball implements SpatialObject {
+    /**
+     * How far a ball may overlap a wall or another ball and still be considered touching it, absorbing rounding errors at the point of contact.
+     */
+    public static final double CONTACT_TOLERANCE = 1e-6;
+
+    /**
+     * The approach speed below which a collision is perfectly elastic whatever the restitution. Inelastic impulses between objects that keep touching only ever shrink the speed they approach at,
+     * so without a floor a packed cluster, or a ball pressed against a wall, would collide again and again in no time at all, which is known as inelastic collapse.
+     */
+    public static final double ELASTIC_BELOW_SPEED = 1e-2;
+
+    /**
+     * The speed below which balls are not considered to approach each other. Such balls overlap by far less than {@link #CONTACT_TOLERANCE} within any realistic time, and the impulse between
+     * them would be lost to rounding, leaving them to collide again at once.
+     */
+    public static final double MIN_APPROACH_SPEED = 1e-9;
+
+    private final AtomicInteger collisionCount = new AtomicInteger();  // Bumped whenever the velocity changes, invalidating scheduled events
+
+    private BallStore store;  // Store holding the ball's state
+    private int       index;  // Slot of the ball in the store
+
+    /**
+     * Constructs a new ball with specified properties.
+     *
+     * @param position
+     *         The balls initial position
+     * @param speed
+     *         Initial speed
+     * @param direction
+     *         Initial direction in radians
+     * @param radius
+     *         Radius of the ball
+     * @param mass
+     *         Mass of the ball
+     */
+    public Ball(Coordinate position, double speed, double direction, double radius, double mass) {
+        this.store = new BallStore(1);
+        this.index = store.insert(this, position.x(), position.y(), speed * StrictMath.cos(direction), speed * StrictMath.sin(direction), radius, mass);
+    }
+
+    /**
+     * Constructs a handle onto a slot of a store.
+     */
+    Ball(BallStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    /**
+     * Constructs a new ball from the components of its velocity.
+     *
+     * @param position
+     *         The balls initial position
+     * @param vx
+     *         Initial velocity along the x-axis
+     * @param vy
+     *         Initial velocity along the y-axis
+     * @param radius
+     *         Radius of the ball
+     * @param mass
+     *         Mass of the ball
+     *
+     * @return The new ball, in a store of its own.
+     */
+    public static Ball withVelocity(Coordinate position, double vx, double vy, double radius, double mass) {
+        return new BallStore(1).add(position.x(), position.y(), vx, vy, radius, mass);
+    }
+
+    public BallStore getStore() {
+        return store;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Points the handle at a new slot, used when the ball is moved into another store. Not safe to call while other threads use the ball, so balls are moved before they are shared.
+     */
+    void moveTo(BallStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    // Getters and Setters
+    @Override
+    public Coordinate getPosition() {
+        BallStore.State state = store.read(index);
+        return new Coordinate(state.x(), state.y());
+    }
+
+    @Override
+    public void setPosition(Coordinate position) {
+        store.setPosition(index, position.x(), position.y());
+    }
+
+    public double[] getBoundingCoordinates() {
+        BallStore.State state = store.read(index);
+        return new double[]{state.x(), state.y(), state.radius()};
+    }
+
+    @Override
+    public boolean intersects(double minX, double minY, double maxX, double maxY) {
+        double x        = store.getX(index);
+        double y        = store.getY(index);
+        double radius   = store.getRadius(index);
+        double closestX = Math.max(minX, Math.min(x, maxX));
+        double closestY = Math.max(minY, Math.min(y, maxY));
+
+        double distanceX = x - closestX;
+        double distanceY = y - closestY;
+
+        double distanceSquared = distanceX * distanceX + distanceY * distanceY;
+
+        return distanceSquared < (radius * radius);
+    }
+
+    @Override
+    public AABB getAABB() {
+        double x      = store.getX(index);
+        double y      = store.getY(index);
+        double radius = store.getRadius(index);
+        return new AABB(x - radius, y - radius, x + radius, y + radius);
+    }
+
+    public double getVx() {
+        return store.getVx(index);
+    }
+
+    public double getVy() {
+        return store.getVy(index);
+    }
+
+    public void setVelocity(double vx, double vy) {
+        store.setVelocity(index, vx, vy);
+    }
+
+    /**
+     * @return The velocity along the x-axis in Q32.32, rounded to the nearest point of the grid.
+     */
+    public long getFixedVx() {
+        return FixedPoint.fromDouble(store.getVx(index));
+    }
+
+    /**
+     * @return The velocity along the y-axis in Q32.32, rounded to the nearest point of the grid.
+     */
+    public long getFixedVy() {
+        return FixedPoint.fromDouble(store.getVy(index));
+    }
+
+    /**
+     * Sets the velocity from fixed-point components, which is exact for any speed a ball reaches.
+     *
+     * @param vx
+     *         The velocity along the x-axis in Q32.32.
+     * @param vy
+     *         The velocity along the y-axis in Q32.32.
+     */
+    public void setFixedVelocity(long vx, long vy) {
+        store.setVelocity(index, FixedPoint.toDouble(vx), FixedPoint.toDouble(vy));
+    }
+
+    public double getSpeed() {
+        BallStore.State state = store.read(index);
+        return StrictMath.hypot(state.vx(), state.vy());
+    }
+
+    /**
+     * Derives the direction of movement from the velocity. Kept for callers that work with angles; the physics itself never needs it.
+     *
+     * @return The direction of movement in radians, between -π and π.
+     */
+    public double getDirection() {
+        BallStore.State state = store.read(index);
+        return StrictMath.atan2(state.vy(), state.vx());
+    }
+
+    /**
+     * Turns the ball to the given direction, keeping its speed.
+     *
+     * @param direction
+     *         The new direction in radians.
+     */
+    public void setDirection(double direction) {
+        double speed = getSpeed();
+        store.setVelocity(index, speed * StrictMath.cos(direction), speed * StrictMath.sin(direction));
+    }
+
+    /**
+     * Returns the number of times this ball's velocity has been changed by a collision.
+     * <p>
+     * Event schedulers record this count when they predict a collision and drop the event if it has changed by the time the event is due.
+     * </p>
+     *
+     * @return the collision count
+     */
+    public int getCollisionCount() {
+        return collisionCount.get();
+    }
+
+    /**
+     * Moves the ball along its current velocity.
+     *
+     * @param deltaTime
+     *         The time to move for.
+     */
+    public void advance(double deltaTime) {
+        store.advance(index, deltaTime);
+    }
+
+    public double getRadius() {
+        return store.getRadius(index);
+    }
+
+    public double getMass() {
+        return store.getMass(index);
+    }
+
+    /**
+     * Determines if this Ball is equal to another object.
+     * <p>
+     * A Ball is considered equal to another Ball if their positions, velocities, radii, and masses are identical.
+     * </p>
+     *
+     * @param o
+     *         Object to compare
+     *
+     * @return true if the object is a Ball and has the same properties, false otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {return true;}
+        if (o == null || getClass() != o.getClass()) {return false;}
+
+        BallStore.State state = store.read(index);
+        BallStore.State other = ((Ball) o).store.read(((Ball) o).index);
+
+        if (Double.compare(other.radius(), state.radius()) != 0) {return false;}
+        if (Double.compare(other.mass(), state.mass()) != 0) {return false;}
+        if (!new Coordinate(state.x(), state.y())
+                .equals(new Coordinate(other.x(), other.y()))) {return false;}
+        return Double.compare(other.vx(), state.vx()) == 0 && Double.compare(other.vy(), state.vy()) == 0;
+    }
+
+    /**
+     * Generates a hash code for the Ball.
+     * <p>
+     * The hash code is computed based on the Ball's position, velocity, radius, and mass.
+     * </p>
+     *
+     * @return hash code
+     */
+    @Override
+    public int hashCode() {
+        BallStore.State state = store.read(index);
+        return Objects.hash(new Coordinate(state.x(), state.y()), state.vx(), state.vy(), state.radius(), state.mass());
+    }
+
+    /**
+     * Calculates whether this ball will collide with another ball.
+     *
+     * @param other The other ball to check for collision with.
+     * @return An Optional containing CollisionDetail if they will collide, otherwise Optional.empty().
+     */
+    public Optional<CollisionDetail<Ball, Ball>> willCollideWith(Ball other) {
+        // Step 1: Initialize variables
+        // -----------------------------
+        // Take a consistent snapshot of both balls
+        BallStore.State s1 = this.store.read(this.index);
+        BallStore.State s2 = other.store.read(other.index);
+
+        // Calculate the differences in the x and y coordinates of the two balls
+        double dx = s2.x() - s1.x();
+        double dy = s2.y() - s1.y();
+
+        // Get the radius of both balls
+        double r1 = s1.radius();
+        double r2 = s2.radius();
+
+        // Step 2: Check for existing overlap
+        // -----------------------------------
+        // If the balls already overlap by more than CONTACT_TOLERANCE, then they can't collide in the future and are left to pass through. Balls that only overlap by rounding still touch.
+        // Compare squared distances to avoid the square root.
+        if (dx * dx + dy * dy - (r1 + r2) * (r1 + r2) < -2 * CONTACT_TOLERANCE * (r1 + r2)) {
+            return Optional.empty();
+        }
+
+        // Step 3: Read the velocity components of each ball
+        // ------------------------------------------------
+        double v1x = s1.vx();
+        double v1y = s1.vy();
+        double v2x = s2.vx();
+        double v2y = s2.vy();
+
+        // Compute the velocity of the second ball relative to the first, matching the relative position above
+        double dvx = v2x - v1x;
+        double dvy = v2y - v1y;
+
+        // Step 4: Set up the quadratic equation to solve for time t
+        // ---------------------------------------------------------
+        // Coefficients for the quadratic equation at^2 + bt + c = 0
+        double a = dvx * dvx + dvy * dvy;
+        double b = 2 * (dx * dvx + dy * dvy);
+        double c = dx * dx + dy * dy - (r1 + r2) * (r1 + r2);
+
+        // Balls that do not approach each other never meet. Touching balls that slide past or along one another would otherwise collide at once, over and over, without time ever moving on. The
+        // speed along the line between the centres only drops until they touch, so comparing it now to the minimum keeps every pair that meets faster than that
+        if (b >= -2 * MIN_APPROACH_SPEED * (r1 + r2)) {
+            return Optional.empty();
+        }
+
+        // Step 5: Solve quadratic equation for t
+        // ---------------------------------------
+        // Discriminant for the quadratic equation
+        double discriminant = b * b - 4 * a * c;
+
+        // If discriminant is negative, then no real roots exist, i.e., no collision
+        if (discriminant < 0) {
+            return Optional.empty();
+        }
+
+        // Calculate the two possible times of collision
+        double t1 = (-b + Math.sqrt(discriminant)) / (2 * a);
+        double t2 = (-b - Math.sqrt(discriminant)) / (2 * a);
+
+        // Take the earlier time. Approaching balls that do not touch yet meet at two positive times, while touching ones have one root in the past and collide at once
+        double t = Math.max(0, Math.min(t1, t2));
+
+        // Step 6: Calculate the collision coordinates
+        // -------------------------------------------
+        // Using one ball's initial coordinates and velocity components to find collision point
+        double collisionX = s1.x() + v1x * t;
+        double collisionY = s1.y() + v1y * t;
+
+        // Step 7: Return the collision details
+        // ------------------------------------
+        return Optional.of(new CollisionDetail<>(t, collisionX, collisionY, this, other));
+    }
+
+    /**
+     * Updates the velocities of this ball and another ball post-collision with a perfectly elastic impulse, which conserves both momentum and kinetic energy. Assumes that the balls are just at
+     * the point of collision.
+     *
+     * @param other The other ball involved in the collision.
+     * @see #resolveCollision(Ball, double)
+     */
+    public void resolveCollision(Ball other) {
+        resolveCollision(other, 1.0);
+    }
+
+    /**
+     * Applies the impulse of a collision with another ball to both balls, weighted by their masses.
+     * <p>
+     * The impulse acts along the line between the centres and only changes the velocity components along it. Its size follows from the coefficient of restitution: the balls separate along the
+     * line at that fraction of the speed they approached at, and the heavier ball's velocity changes less. Momentum is conserved whatever the coefficient, and kinetic energy as well when it is 1.
+     * Balls that are already separating are left as they are, and balls approaching slower than {@link #ELASTIC_BELOW_SPEED} bounce perfectly elastically. Assumes that the balls are just at the
+     * point of collision.
+     * </p>
+     *
+     * @param other The other ball involved in the collision.
+     * @param elasticity The coefficient of restitution, 1 for a perfectly elastic collision and 0 for one that leaves the balls moving together along the line.
+     */
+    public void resolveCollision(Ball other, double elasticity) {
+        applyImpulse(other, elasticity);
+        this.collisionCount.incrementAndGet();
+        other.collisionCount.incrementAndGet();
+    }
+
+    /**
+     * Resolves the contacts within a cluster of balls at once, for a collision that sets a ball moving into others it already touches.
+     * <p>
+     * Resolving such a collision on its own leaves the neighbours to be hit at once again, one event per contact, and with a restitution below 1 balls resting against each other can be pushed
+     * into one another without an event at all. Instead, every pair of the cluster that touches, within {@link #CONTACT_TOLERANCE}, and still approaches gets the impulse of
+     * {@link #resolveCollision(Ball, double)}, and the pairs are swept again until a sweep finds none approaching, so an impulse travels through a row of touching balls within one call. Each
+     * impulse conserves momentum, so the cluster does as a whole. Sweeps cost quadratic time in the size of the cluster, which is meant to hold a few balls.
+     * </p>
+     *
+     * @param cluster The balls to resolve, which should include every ball touching one of them.
+     * @param elasticity The coefficient of restitution of every contact.
+     * @param maxIterations The maximum number of sweeps, bounding the work when contacts keep pushing each other back and forth.
+     * @return The number of impulses applied.
+     */
+    public static int resolveContacts(List<Ball> cluster, double elasticity, int maxIterations) {
+        int impulses = 0;
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            int applied = 0;
+            for (int i = 0; i < cluster.size(); i++) {
+                Ball ball = cluster.get(i);
+                for (int j = i + 1; j < cluster.size(); j++) {
+                    Ball other = cluster.get(j);
+                    if (ball.touches(other) && ball.applyImpulse(other, elasticity)) {
+                        ball.collisionCount.incrementAndGet();
+                        other.collisionCount.incrementAndGet();
+                        applied++;
+                    }
+                }
+            }
+            if (applied == 0) {
+                break;
+            }
+            impulses += applied;
+        }
+        return impulses;
+    }
+
+    /**
+     * Determines whether this ball touches or overlaps another ball, allowing for {@link #CONTACT_TOLERANCE} of rounding between them.
+     *
+     * @param other The other ball.
+     * @return True if the balls touch, otherwise false.
+     */
+    public boolean touches(Ball other) {
+        double dx    = other.store.getX(other.index) - store.getX(index);
+        double dy    = other.store.getY(other.index) - store.getY(index);
+        double reach = store.getRadius(index) + other.store.getRadius(other.index) + CONTACT_TOLERANCE;
+        return dx * dx + dy * dy <= reach * reach;
+    }
+
+    /**
+     * Applies the mass-weighted impulse between this ball and another if they approach along the line between their centres, without counting a collision.
+     *
+     * @return True if the balls approached and the impulse was applied, otherwise false.
+     */
+    private boolean applyImpulse(Ball other, double elasticity) {
+        BallStore.State s1 = this.store.read(this.index);
+        BallStore.State s2 = other.store.read(other.index);
+
+        // The unnormalized collision normal, from this ball to the other
+        double dx = s2.x() - s1.x();
+        double dy = s2.y() - s1.y();
+        double dd = dx * dx + dy * dy;
+
+        // The velocity of the other ball relative to this one along the normal, divided by its squared length instead of normalizing it; negative while the balls approach
+        double closing = dd == 0 ? 0 : ((s2.vx() - s1.vx()) * dx + (s2.vy() - s1.vy()) * dy) / dd;
+        if (closing >= 0) {
+            return false;
+        }
+        double restitution = closing * closing * dd < ELASTIC_BELOW_SPEED * ELASTIC_BELOW_SPEED ? 1 : elasticity;
+        double impulse     = -(1 + restitution) * closing / (1 / s1.mass() + 1 / s2.mass());
+        this.setVelocity(s1.vx() - impulse / s1.mass() * dx, s1.vy() - impulse / s1.mass() * dy);
+        other.setVelocity(s2.vx() + impulse / s2.mass() * dx, s2.vy() + impulse / s2.mass() * dy);
+        return true;
+    }
+
+    /**
+     * Bounces the ball off a wall by updating its velocity.
+     *
+     * @param wall The wall the ball is bouncing off of.
+     */
+    public void bounceOffWall(Wall wall) {
+        // Determine the orientation of the wall and flip the velocity component across it
+        BallStore.State state = store.read(index);
+        if (wall.getOrientation() == Wall.Orientation.HORIZONTAL) {
+            // For horizontal walls, reflect over the x-axis
+            this.setVelocity(state.vx(), -state.vy());
+        } else {
+            // For vertical walls, reflect over the y-axis
+            this.setVelocity(-state.vx(), state.vy());
+        }
+        collisionCount.incrementAndGet();
+    }
+
+    /**
+     * Bounces the ball off the point of a wall it touches, as predicted by {@link #willCollideWithWall(Wall)}.
+     * <p>
+     * The velocity is reflected about the normal from the point of contact to the centre of the ball, relative to the velocity of the wall at that point. On a long side this is the same as
+     * {@link #bounceOffWall(Wall)}; on an end or a corner the normal tilts accordingly. A growing end the ball touches has already been stopped where it is by
+     * {@link Wall#stopEndTouching(Coordinate)}, so the ball bounces off it at its own speed.
+     * </p>
+     *
+     * @param wall The wall the ball is bouncing off of.
+     * @param contactX The x-coordinate of the point of contact.
+     * @param contactY The y-coordinate of the point of contact.
+     */
+    public void bounceOffWall(Wall wall, double contactX, double contactY) {
+        bounceOffWall(wall, contactX, contactY, 1.0);
+    }
+
+    /**
+     * Bounces the ball off the point of a wall it touches, keeping the given fraction of the speed it approached the wall at. Walls do not give way, so a coefficient of 1 keeps the ball's speed
+     * relative to the wall. A ball approaching slower than {@link #ELASTIC_BELOW_SPEED} bounces perfectly elastically.
+     *
+     * @param wall The wall the ball is bouncing off of.
+     * @param contactX The x-coordinate of the point of contact.
+     * @param contactY The y-coordinate of the point of contact.
+     * @param elasticity The coefficient of restitution.
+     * @see #bounceOffWall(Wall, double, double)
+     */
+    public void bounceOffWall(Wall wall, double contactX, double contactY, double elasticity) {
+        BallStore.State state = store.read(index);
+        boolean horizontal = wall.getOrientation() == Wall.Orientation.HORIZONTAL;
+        double nx = state.x() - contactX;
+        double ny = state.y() - contactY;
+        double nn = nx * nx + ny * ny;
+        if (nn == 0) {
+            // The centre is on the wall, so only the orientation gives a normal
+            this.setVelocity(horizontal ? state.vx() : -elasticity * state.vx(), horizontal ? -elasticity * state.vy() : state.vy());
+            collisionCount.incrementAndGet();
+            return;
+        }
+
+        // Only the ends of a wall move, and only along it, so only a normal with a component along the wall sees the wall move
+        double normalAlong = horizontal ? nx : ny;
+        double endVelocity = normalAlong == 0 ? 0 : wall.getEndVelocity(normalAlong * wall.getEndDirection(true) > 0);
+        double ux = horizontal ? endVelocity : 0;
+        double uy = horizontal ? 0 : endVelocity;
+
+        // Reflect the velocity relative to the wall, dividing by the squared length of the normal instead of normalizing it
+        double dot = ((state.vx() - ux) * nx + (state.vy() - uy) * ny) / nn;
+        if (dot < 0) {
+            double restitution = dot * dot * nn < ELASTIC_BELOW_SPEED * ELASTIC_BELOW_SPEED ? 1 : elasticity;
+            this.setVelocity(state.vx() - (1 + restitution) * dot * nx, state.vy() - (1 + restitution) * dot * ny);
+        }
+        collisionCount.incrementAndGet();
+    }
+
+    /**
+     * Calculates whether this ball will collide with a wall, considering the wall's potential growth.
+     * <p>
+     * The wall is a box that is {@link Wall#getSize()} thick across and runs between its ends along, each end moving towards its target at the growth rate and resting there once it has reached it.
+     * The time of impact is solved in closed form against each feature of that box: the long sides while the ball is between the ends, the face of each end while the ball is within the thickness,
+     * and the corners of each end, each end before and after it stops. The earliest contact wins, so the query costs the same however far the wall still has to grow, and no contact falls between
+     * steps. A stationary wall is the case where neither end moves.
+     * </p>
+     *
+     * @param wall The wall to check for collision with.
+     * @return An Optional containing CollisionDetail if they will collide, otherwise Optional.empty(). The point of the detail is the point of contact on the wall.
+     */
+    public Optional<CollisionDetail<Ball, Wall>> willCollideWithWall(Wall wall) {
+        double[] contact = new double[2];
+        double   time    = calculateTimeToWall(wall, contact);
+        if (time == Double.POSITIVE_INFINITY) {
+            return Optional.empty();
+        }
+        return Optional.of(new CollisionDetail<>(time, contact[0], contact[1], this, wall));
+    }
+
+    /**
+     * Calculates the time until this ball touches a wall, as {@link #willCollideWithWall(Wall)} does, without creating a collision detail.
+     *
+     * @param wall The wall to check for collision with.
+     * @param contact Receives the x- and y-coordinates of the point of contact on the wall, if there is one.
+     * @return The time until the contact, or positive infinity if there is none.
+     */
+    double calculateTimeToWall(Wall wall, double[] contact) {
+        // Work from one snapshot of the ball and one of the wall, in the axes of the wall: 'along' runs along the wall and 'across' across it
+        BallStore.State state = store.read(index);
+        Wall.State wallState = wall.getState();
+        boolean horizontal = wall.getOrientation() == Wall.Orientation.HORIZONTAL;
+        double along = horizontal ? state.x() : state.y();
+        double across = horizontal ? state.y() : state.x();
+        double vAlong = horizontal ? state.vx() : state.vy();
+        double vAcross = horizontal ? state.vy() : state.vx();
+        double ballRadius = state.radius();
+        double wallCenter = horizontal ? wallState.start().y() : wallState.start().x();
+        double wallMin = wallCenter - wall.getSize() / 2.0;
+        double wallMax = wallCenter + wall.getSize() / 2.0;
+
+        double bestTime = Double.POSITIVE_INFINITY;
+        double contactAlong = 0;
+        double contactAcross = 0;
+
+        // 1. The long sides, which the ball hits if it is between the ends at that time
+        double time = calculateTimeToCollision(wallMin, wallMax, across, vAcross, ballRadius);
+        if (time >= 0) {
+            double hitAlong = along + vAlong * time;
+            double end1 = wall.getEndPosition(wallState, true, time);
+            double end2 = wall.getEndPosition(wallState, false, time);
+            if (hitAlong >= Math.min(end1, end2) && hitAlong <= Math.max(end1, end2)) {
+                bestTime = time;
+                contactAlong = hitAlong;
+                contactAcross = vAcross > 0 ? wallMin : wallMax;
+            }
+        }
+
+        // 2. The face and the two corners of each end, first while the end moves towards its target and then while it rests there
+        for (int end = 0; end < 2; end++) {
+            boolean isEnd1 = end == 0;
+            double direction = wall.getEndDirection(isEnd1);
+            double stopTime = wall.getEndStopTime(wallState, isEnd1);
+            double endVelocity = wall.getEndVelocity(wallState, isEnd1);
+            for (int phase = 0; phase < 2; phase++) {
+                double start = phase == 0 ? 0 : stopTime;
+                double limit = phase == 0 ? stopTime : Double.POSITIVE_INFINITY;
+                double velocity = phase == 0 ? endVelocity : 0;
+                if ((phase == 0 && stopTime == 0) || start >= bestTime) {
+                    continue;
+                }
+
+                // The ball relative to the end at the start of the phase
+                double tip = wall.getEndPosition(wallState, isEnd1) + endVelocity * start;
+                double relAlong = along + vAlong * start - tip;
+                double relAcross = across + vAcross * start;
+                double relVAlong = vAlong - velocity;
+                boolean fromRest = start == 0;
+
+                // The face of the end, hit while the ball is within the thickness of the wall
+                time = start + calculateTimeToContact(direction * relAlong - ballRadius, direction * relVAlong, fromRest);
+                if (time >= start && time <= limit && time < bestTime) {
+                    double hitAcross = across + vAcross * time;
+                    if (hitAcross >= wallMin && hitAcross <= wallMax) {
+                        bestTime = time;
+                        contactAlong = tip + velocity * (time - start);
+                        contactAcross = hitAcross;
+                    }
+                }
+
+                // The corners of the end, hit while the ball is beyond both the end and the side
+                for (int side = -1; side <= 1; side += 2) {
+                    double corner = side < 0 ? wallMin : wallMax;
+                    time = start + calculateTimeToContact(relAlong, relAcross - corner, relVAlong, vAcross, ballRadius, fromRest);
+                    if (time >= start && time <= limit && time < bestTime) {
+                        double elapsed = time - start;
+                        if (direction * (relAlong + relVAlong * elapsed) > 0 && side * (relAcross + vAcross * elapsed - corner) > 0) {
+                            bestTime = time;
+                            contactAlong = tip + velocity * elapsed;
+                            contactAcross = corner;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (bestTime != Double.POSITIVE_INFINITY) {
+            contact[0] = horizontal ? contactAlong : contactAcross;
+            contact[1] = horizontal ? contactAcross : contactAlong;
+        }
+        return bestTime;
+    }
+
+    /**
+     * Calculates the time until a gap that closes at a constant rate is closed.
+     *
+     * @param gap The current gap, negative if the objects overlap.
+     * @param rate The rate at which the gap changes, negative if it closes.
+     * @param fromRest Whether the gap is measured now, so that objects touching within {@link #CONTACT_TOLERANCE} collide immediately rather than never.
+     * @return The time until the gap is closed, or -1 if it never closes.
+     */
+    private static double calculateTimeToContact(double gap, double rate, boolean fromRest) {
+        if (rate >= 0) {
+            return -1.0;
+        }
+        if (gap >= 0) {
+            return gap / -rate;
+        }
+        return fromRest && gap >= -CONTACT_TOLERANCE ? 0 : -1.0;
+    }
+
+    /**
+     * Calculates the time until a point moving at a constant velocity comes within the given radius of the origin, solving the quadratic in its numerically stable form.
+     *
+     * @param dx The x-coordinate of the point relative to the origin.
+     * @param dy The y-coordinate of the point relative to the origin.
+     * @param vx The x-component of the velocity of the point.
+     * @param vy The y-component of the velocity of the point.
+     * @param radius The radius to come within.
+     * @param fromRest Whether the position is taken now, so that a point on the circle within {@link #CONTACT_TOLERANCE} collides immediately rather than never.
+     * @return The time until the point reaches the circle, or -1 if it never does.
+     */
+    private static double calculateTimeToContact(double dx, double dy, double vx, double vy, double radius, boolean fromRest) {
+        double b = dx * vx + dy * vy;
+        if (b >= 0) {
+            return -1.0;  // Moving away from the origin or passing it
+        }
+        double c = dx * dx + dy * dy - radius * radius;
+        if (c <= 0) {
+            return fromRest && Math.sqrt(dx * dx + dy * dy) >= radius - CONTACT_TOLERANCE ? 0 : -1.0;
+        }
+        double discriminant = b * b - (vx * vx + vy * vy) * c;
+        if (discriminant < 0) {
+            return -1.0;
+        }
+        return c / (-b + Math.sqrt(discriminant));
+    }
+
+    /**
+     * Calculate time to collision based on the adjusted coordinates of the wall and ball.
+     * <p>
+     * Only a ball that is moving towards the wall can collide with it. A ball that is touching the wall and moving away from it, for example right after bouncing off it, never does. Like overlapping
+     * balls in {@link #willCollideWith(Ball)}, a ball that already penetrates the wall beyond {@link #CONTACT_TOLERANCE} is left to pass through, otherwise a ball wedged between two walls would
+     * bounce between them forever without time advancing.
+     * </p>
+     *
+     * @param adjustedWallMin The minimum coordinate of the wall taking its size into account.
+     * @param adjustedWallMax The maximum coordinate of the wall taking its size into account.
+     * @param ballCoordinate The current coordinate of the ball along the axis of interest.
+     * @param ballVelocity The velocity of the ball along the axis of interest.
+     * @param ballRadius The radius of the ball.
+     * @return The time to collision, or -1 if no collision is predicted.
+     */
+    private double calculateTimeToCollision(double adjustedWallMin, double adjustedWallMax, double ballCoordinate, double ballVelocity, double ballRadius) {
+        if (ballVelocity > 0 && ballCoordinate < adjustedWallMin) {
+            double distance = adjustedWallMin - ballRadius - ballCoordinate;
+            return distance >= -CONTACT_TOLERANCE ? Math.max(0, distance / ballVelocity) : -1.0;
+        }
+        if (ballVelocity < 0 && ballCoordinate > adjustedWallMax) {
+            double distance = adjustedWallMax + ballRadius - ballCoordinate;
+            return distance <= CONTACT_TOLERANCE ? Math.max(0, distance / ballVelocity) : -1.0;
+        }
+        return -1.0;
+    }
+
+}
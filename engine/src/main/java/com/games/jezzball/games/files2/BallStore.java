@@ -0,0 +1,524 @@
+package com.games.jezzball.games.files2;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Keeps the state of many balls in parallel primitive columns: position, velocity, radius and mass each live in their own {@code double[]} indexed by the ball's slot.
+ * <p>
+ * {@link Ball} objects are thin handles onto a slot, so code that works with single balls keeps its object API while the simulation runs its per-tick work as plain loops over the columns. These
+ * loops touch consecutive elements of a few arrays without calls or allocation, which lets the JIT unroll and auto-vectorize them.
+ * </p>
+ * <p>
+ * A ball belongs to one store at a time. A ball constructed on its own gets a private store of its own and is moved into a shared store with {@link #adopt(Ball)}, which must happen before the
+ * ball is shared with other threads.
+ * </p>
+ * <p>
+ * The store has a single writer, the thread that drives the simulation, and any number of lock-free readers. Every slot has a sequence number that a write makes odd while it is in progress and
+ * even again once it is done, and bulk operations over all slots do the same with one store-wide sequence, so their loops stay free of per-slot bookkeeping. {@link #read(int)} copies a slot and
+ * retries if either sequence was odd or changed meanwhile, so readers always see a whole update and never block the writer. Reading a single column, such as {@link #getVx(int)}, needs no
+ * sequence.
+ * </p>
+ * <p>
+ * The store also remembers which balls moved since the writer last asked, so that an index only has to refresh the balls that actually moved.
+ * </p>
+ * <p>
+ * In grid mode every value written is rounded to the Q32.32 grid of {@link FixedPoint}, so the state evolves the same bit for bit on every machine and can be compared or exchanged exactly. The
+ * columns stay {@code double}s, which hold every value of the grid within an arena exactly. Only moving the balls and solving their times of impact with the {@link FixedPointNarrowPhase} use
+ * integer arithmetic; values computed elsewhere in {@code double}s are simply rounded to the grid when they are written.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.4
+ */
+public class BallStore {
+    private static final int       INITIAL_CAPACITY = 16;
+    private static final VarHandle SEQUENCE         = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle BULK_SEQUENCE;
+
+    static {
+        try {
+            BULK_SEQUENCE = MethodHandles.lookup()
+                                         .findVarHandle(BallStore.class, "bulkSequence", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private long[]   sequence;      // Per-slot write sequence, odd while the slot is being written
+    private long     bulkSequence;  // Store-wide write sequence, odd while a bulk operation is running
+    private double[] x;
+    private double[] y;
+    private double[] vx;
+    private double[] vy;
+    private double[] radius;
+    private double[] mass;
+    private Ball[]   balls;
+    private int      size;
+
+    private boolean     onGrid;                             // Whether the state is kept on the Q32.32 grid
+    private NarrowPhase narrowPhase = NarrowPhase.INSTANCE;
+
+    private final BitSet moved = new BitSet();  // Slots whose position changed since the last clearMoved(), only touched by the writer
+
+    /**
+     * Constructs an empty store.
+     */
+    public BallStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty store with room for the given number of balls before its columns grow.
+     *
+     * @param initialCapacity
+     *         The number of balls to make room for.
+     */
+    public BallStore(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        sequence = new long[capacity];
+        x        = new double[capacity];
+        y        = new double[capacity];
+        vx       = new double[capacity];
+        vy       = new double[capacity];
+        radius   = new double[capacity];
+        mass     = new double[capacity];
+        balls    = new Ball[capacity];
+    }
+
+    /**
+     * Adds a ball to the store.
+     *
+     * @param x
+     *         Initial x-coordinate
+     * @param y
+     *         Initial y-coordinate
+     * @param vx
+     *         Initial velocity along the x-axis
+     * @param vy
+     *         Initial velocity along the y-axis
+     * @param radius
+     *         Radius of the ball
+     * @param mass
+     *         Mass of the ball
+     *
+     * @return The handle of the new ball.
+     */
+    public Ball add(double x, double y, double vx, double vy, double radius, double mass) {
+        Ball ball = new Ball(this, size);
+        insert(ball, x, y, vx, vy, radius, mass);
+        return ball;
+    }
+
+    /**
+     * Stores the state of a ball in a new slot.
+     *
+     * @return The slot, which the handle must point at.
+     */
+    int insert(Ball ball, double x, double y, double vx, double vy, double radius, double mass) {
+        int index = allocate();
+        set(index, x, y, vx, vy, radius, mass);
+        balls[index] = ball;
+        return index;
+    }
+
+    /**
+     * Moves a ball into this store, copying its state into a new slot and pointing the handle at it. The slot it leaves behind in its previous store is abandoned.
+     *
+     * @param ball
+     *         The ball to move.
+     *
+     * @return The slot the ball now occupies.
+     */
+    public int adopt(Ball ball) {
+        BallStore source = ball.getStore();
+        int       from   = ball.getIndex();
+        if (source == this) {
+            return from;
+        }
+
+        int index = insert(ball, source.x[from], source.y[from], source.vx[from], source.vy[from], source.radius[from], source.mass[from]);
+        source.balls[from] = null;
+        ball.moveTo(this, index);
+        return index;
+    }
+
+    /**
+     * @return The handle of the ball in the given slot.
+     */
+    public Ball get(int index) {
+        return balls[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX(int index) {
+        return x[index];
+    }
+
+    public double getY(int index) {
+        return y[index];
+    }
+
+    public double getVx(int index) {
+        return vx[index];
+    }
+
+    public double getVy(int index) {
+        return vy[index];
+    }
+
+    public double getRadius(int index) {
+        return radius[index];
+    }
+
+    public double getMass(int index) {
+        return mass[index];
+    }
+
+    /**
+     * Copies the state of a ball as one consistent snapshot, waiting out a write that is in progress.
+     *
+     * @param index
+     *         The slot of the ball.
+     *
+     * @return The state of the ball.
+     */
+    public State read(int index) {
+        while (true) {
+            long bulk = (long) BULK_SEQUENCE.getAcquire(this);
+            long slot = (long) SEQUENCE.getAcquire(sequence, index);
+            if (((bulk | slot) & 1) == 0) {
+                State state = new State(x[index], y[index], vx[index], vy[index], radius[index], mass[index]);
+                VarHandle.loadLoadFence();
+                if (bulk == (long) BULK_SEQUENCE.getOpaque(this) && slot == (long) SEQUENCE.getOpaque(sequence, index)) {
+                    return state;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Switches grid mode on or off. Switching it on rounds the state of every ball to the Q32.32 grid.
+     *
+     * @param onGrid
+     *         Whether to keep the state on the Q32.32 grid.
+     *
+     * @throws ArithmeticException
+     *         If a value is too large for the fixed-point format.
+     */
+    public void setOnGrid(boolean onGrid) {
+        this.onGrid      = onGrid;
+        this.narrowPhase = onGrid ? new FixedPointNarrowPhase() : NarrowPhase.INSTANCE;
+        if (onGrid) {
+            for (int i = 0; i < size; i++) {
+                set(i, x[i], y[i], vx[i], vy[i], radius[i], mass[i]);
+            }
+        }
+    }
+
+    public boolean isOnGrid() {
+        return onGrid;
+    }
+
+    public void setPosition(int index, double x, double y) {
+        beginWrite(index);
+        this.x[index] = grid(x);
+        this.y[index] = grid(y);
+        endWrite(index);
+        moved.set(index);
+    }
+
+    public void setVelocity(int index, double vx, double vy) {
+        beginWrite(index);
+        this.vx[index] = grid(vx);
+        this.vy[index] = grid(vy);
+        endWrite(index);
+    }
+
+    /**
+     * Moves one ball along its velocity. In grid mode the time is rounded to the grid and the ball is moved in integer arithmetic.
+     *
+     * @param index
+     *         The slot of the ball.
+     * @param deltaTime
+     *         The time to move for.
+     */
+    public void advance(int index, double deltaTime) {
+        beginWrite(index);
+        if (onGrid) {
+            long time = FixedPoint.fromDouble(deltaTime);
+            x[index] = move(x[index], vx[index], time);
+            y[index] = move(y[index], vy[index], time);
+        } else {
+            x[index] += vx[index] * deltaTime;
+            y[index] += vy[index] * deltaTime;
+        }
+        endWrite(index);
+        if (deltaTime != 0 && (vx[index] != 0 || vy[index] != 0)) {
+            moved.set(index);
+        }
+    }
+
+    /**
+     * Moves every ball along its velocity. In grid mode the time is rounded to the grid and the ball is moved in integer arithmetic.
+     *
+     * @param deltaTime
+     *         The time to move for.
+     */
+    public void advanceAll(double deltaTime) {
+        beginBulkWrite();
+        double[] x = this.x, y = this.y, vx = this.vx, vy = this.vy;
+        if (onGrid) {
+            long time = FixedPoint.fromDouble(deltaTime);
+            for (int i = 0; i < size; i++) {
+                x[i] = move(x[i], vx[i], time);
+                y[i] = move(y[i], vy[i], time);
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                x[i] += vx[i] * deltaTime;
+                y[i] += vy[i] * deltaTime;
+            }
+        }
+        endBulkWrite();
+        if (deltaTime != 0) {
+            markMoving();
+        }
+    }
+
+    /**
+     * Moves every ball from the time it was last moved to up to a common time, for simulations that advance balls lazily. In grid mode the times are rounded to the grid and the balls are
+     * moved in integer arithmetic.
+     *
+     * @param times
+     *         The time each ball was last moved to, indexed by slot. Every entry is set to {@code time}.
+     * @param time
+     *         The time to move every ball to.
+     */
+    public void advanceAll(double[] times, double time) {
+        beginBulkWrite();
+        double[] x = this.x, y = this.y, vx = this.vx, vy = this.vy;
+        if (onGrid) {
+            long end = FixedPoint.fromDouble(time);
+            for (int i = 0; i < size; i++) {
+                long deltaTime = end - FixedPoint.fromDouble(times[i]);
+                x[i]     = move(x[i], vx[i], deltaTime);
+                y[i]     = move(y[i], vy[i], deltaTime);
+                times[i] = time;
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                double deltaTime = time - times[i];
+                x[i] += vx[i] * deltaTime;
+                y[i] += vy[i] * deltaTime;
+                times[i] = time;
+            }
+        }
+        endBulkWrite();
+        markMoving();
+    }
+
+    /**
+     * Returns the first slot at or after the given one whose ball moved since {@link #clearMoved()} was last called. A ball counts as moved when its position was set, when it was added, or when
+     * it was advanced with a non-zero velocity.
+     *
+     * @param from
+     *         The slot to start looking at.
+     *
+     * @return The slot, or -1 if no ball from that slot on moved.
+     */
+    public int nextMoved(int from) {
+        return moved.nextSetBit(from);
+    }
+
+    /**
+     * Forgets which balls moved, typically once an index has caught up with them.
+     */
+    public void clearMoved() {
+        moved.clear();
+    }
+
+    /**
+     * Marks every ball with a non-zero velocity as moved. Kept out of the loops that move the balls, so those stay free of branches.
+     */
+    private void markMoving() {
+        double[] vx = this.vx, vy = this.vy;
+        for (int i = 0; i < size; i++) {
+            if (vx[i] != 0 || vy[i] != 0) {
+                moved.set(i);
+            }
+        }
+    }
+
+    /**
+     * @return The highest speed of any ball, or 0 if the store is empty.
+     */
+    public double maxSpeed() {
+        double[] vx = this.vx, vy = this.vy;
+        double   maxSquared = 0;
+        for (int i = 0; i < size; i++) {
+            maxSquared = Math.max(maxSquared, vx[i] * vx[i] + vy[i] * vy[i]);
+        }
+        return Math.sqrt(maxSquared);
+    }
+
+    /**
+     * Writes the axis-aligned bounding box of every ball into the given arrays, indexed by slot.
+     *
+     * @throws IndexOutOfBoundsException
+     *         if an array is shorter than {@link #size()}.
+     */
+    public void computeBounds(double[] minX, double[] minY, double[] maxX, double[] maxY) {
+        double[] x = this.x, y = this.y, radius = this.radius;
+        for (int i = 0; i < size; i++) {
+            minX[i] = x[i] - radius[i];
+            minY[i] = y[i] - radius[i];
+            maxX[i] = x[i] + radius[i];
+            maxY[i] = y[i] + radius[i];
+        }
+    }
+
+    /**
+     * Writes the box every ball sweeps over the given time at its current velocity into the given arrays, indexed by slot. Two balls can only touch within that time if their boxes overlap.
+     *
+     * @throws IndexOutOfBoundsException
+     *         if an array is shorter than {@link #size()}.
+     */
+    public void computeSweptBounds(double time, double[] minX, double[] minY, double[] maxX, double[] maxY) {
+        double[] x = this.x, y = this.y, vx = this.vx, vy = this.vy, radius = this.radius;
+        for (int i = 0; i < size; i++) {
+            double endX = x[i] + vx[i] * time;
+            double endY = y[i] + vy[i] * time;
+            minX[i] = Math.min(x[i], endX) - radius[i];
+            minY[i] = Math.min(y[i], endY) - radius[i];
+            maxX[i] = Math.max(x[i], endX) + radius[i];
+            maxY[i] = Math.max(y[i], endY) + radius[i];
+        }
+    }
+
+    /**
+     * Computes when one ball first touches each of a batch of other balls, assuming all of them keep their current velocities.
+     * <p>
+     * The rules match {@link Ball#willCollideWith(Ball)}: pairs that already overlap or never meet get no time, and neither do pairs whose earliest contact lies in the past. The batch is solved with
+     * SIMD instructions when the Vector API is available, see {@link NarrowPhase}, and with integer arithmetic alone in grid mode.
+     * </p>
+     *
+     * @param index
+     *         The slot of the ball to test.
+     * @param candidates
+     *         The slots of the balls to test it against.
+     * @param count
+     *         The number of candidates.
+     * @param times
+     *         Receives, at the position of each candidate, the time until contact, or {@link Double#POSITIVE_INFINITY} if there is none.
+     *
+     * @return The number of candidates with a contact time.
+     */
+    public int timesOfImpact(int index, int[] candidates, int count, double[] times) {
+        return narrowPhase.timesOfImpact(x, y, vx, vy, radius, index, candidates, count, times);
+    }
+
+    /**
+     * Computes when the balls of each of a batch of independent pairs first touch, following the same rules as {@link #timesOfImpact(int, int[], int, double[])}.
+     *
+     * @param first
+     *         The slots of the first ball of every pair.
+     * @param second
+     *         The slots of the second ball of every pair.
+     * @param count
+     *         The number of pairs.
+     * @param times
+     *         Receives, at the position of each pair, the time until contact, or {@link Double#POSITIVE_INFINITY} if there is none.
+     *
+     * @return The number of pairs with a contact time.
+     */
+    public int timesOfImpact(int[] first, int[] second, int count, double[] times) {
+        return narrowPhase.timesOfImpact(x, y, vx, vy, radius, first, second, count, times);
+    }
+
+    private void set(int index, double x, double y, double vx, double vy, double radius, double mass) {
+        beginWrite(index);
+        this.x[index]      = grid(x);
+        this.y[index]      = grid(y);
+        this.vx[index]     = grid(vx);
+        this.vy[index]     = grid(vy);
+        this.radius[index] = grid(radius);
+        this.mass[index]   = grid(mass);
+        endWrite(index);
+        moved.set(index);
+    }
+
+    /**
+     * Rounds a value to the Q32.32 grid in grid mode, and leaves it as it is otherwise.
+     */
+    private double grid(double value) {
+        return onGrid ? FixedPoint.round(value) : value;
+    }
+
+    /**
+     * Moves a coordinate on the Q32.32 grid along its velocity for a fixed-point time, in integer arithmetic.
+     */
+    private static double move(double position, double velocity, long time) {
+        return FixedPoint.toDouble(FixedPoint.fromDouble(position) + FixedPoint.mul(FixedPoint.fromDouble(velocity), time));
+    }
+
+    private void beginWrite(int index) {
+        SEQUENCE.setOpaque(sequence, index, sequence[index] + 1);
+        VarHandle.storeStoreFence();
+    }
+
+    private void endWrite(int index) {
+        SEQUENCE.setRelease(sequence, index, sequence[index] + 1);
+    }
+
+    private void beginBulkWrite() {
+        BULK_SEQUENCE.setOpaque(this, bulkSequence + 1);
+        VarHandle.storeStoreFence();
+    }
+
+    private void endBulkWrite() {
+        BULK_SEQUENCE.setRelease(this, bulkSequence + 1);
+    }
+
+    private int allocate() {
+        if (size == balls.length) {
+            int capacity = size * 2;
+            beginBulkWrite();
+            sequence = Arrays.copyOf(sequence, capacity);
+            x        = Arrays.copyOf(x, capacity);
+            y        = Arrays.copyOf(y, capacity);
+            vx       = Arrays.copyOf(vx, capacity);
+            vy       = Arrays.copyOf(vy, capacity);
+            radius   = Arrays.copyOf(radius, capacity);
+            mass     = Arrays.copyOf(mass, capacity);
+            balls    = Arrays.copyOf(balls, capacity);
+            endBulkWrite();
+        }
+        return size++;
+    }
+
+    /**
+     * A consistent copy of the state of one ball.
+     *
+     * @param x
+     *         The x-coordinate
+     * @param y
+     *         The y-coordinate
+     * @param vx
+     *         The velocity along the x-axis
+     * @param vy
+     *         The velocity along the y-axis
+     * @param radius
+     *         The radius
+     * @param mass
+     *         The mass
+     */
+    public record State(double x, double y, double vx, double vy, double radius, double mass) {
+    }
+}
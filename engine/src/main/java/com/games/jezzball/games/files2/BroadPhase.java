@@ -0,0 +1,153 @@
+package com.games.jezzball.games.files2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The BroadPhase interface represents a spatial index that narrows collision detection down to objects that are close to each other.
+ * <p>
+ * Implementations only keep a reference to each object and its bounding box as of the last {@link #insert(SpatialObject)} or {@link #update(SpatialObject)}. Whoever moves an object is responsible
+ * for calling {@link #update(SpatialObject)} before relying on the index again. Queries first filter by those bounding boxes and then confirm every candidate with
+ * {@link SpatialObject#intersects(double, double, double, double)}.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.2
+ */
+public interface BroadPhase {
+
+    /**
+     * Adds an object to the index. Inserting an object that is already indexed behaves like {@link #update(SpatialObject)}.
+     *
+     * @param obj
+     *         The object to insert.
+     */
+    void insert(SpatialObject obj);
+
+    /**
+     * Refreshes the indexed bounding box of an object after it moved or changed size.
+     *
+     * @param obj
+     *         The object to refresh.
+     *
+     * @throws IllegalArgumentException
+     *         if the object is not indexed.
+     */
+    void update(SpatialObject obj);
+
+    /**
+     * Removes an object from the index.
+     *
+     * @param obj
+     *         The object to remove.
+     *
+     * @return True if the object was indexed, otherwise false.
+     */
+    boolean remove(SpatialObject obj);
+
+    /**
+     * Removes every object from the index.
+     */
+    void clear();
+
+    /**
+     * Creates an empty broad-phase of the same kind and configuration as this one, for example to index a separate layer of objects the same way.
+     *
+     * @return The new, empty broad-phase.
+     */
+    BroadPhase emptyCopy();
+
+    /**
+     * @return The number of indexed objects.
+     */
+    int size();
+
+    /**
+     * Passes every indexed object of a certain type within a specified bounding box to the given sink.
+     *
+     * @param x1
+     *         The x-coordinate of the top-left corner of the bounding box.
+     * @param y1
+     *         The y-coordinate of the top-left corner of the bounding box.
+     * @param x2
+     *         The x-coordinate of the bottom-right corner of the bounding box.
+     * @param y2
+     *         The y-coordinate of the bottom-right corner of the bounding box.
+     * @param clazz
+     *         The class type to look for.
+     * @param sink
+     *         Receives each matching object.
+     * @param <T>
+     *         The type parameter, extending SpatialObject.
+     *
+     * @return The number of objects passed to the sink.
+     */
+    <T extends SpatialObject> int queryRange(double x1, double y1, double x2, double y2, Class<T> clazz, Consumer<? super T> sink);
+
+    /**
+     * Passes every indexed object of a certain type within a rectangle to the given sink.
+     *
+     * @param range
+     *         The rectangle to search.
+     * @param clazz
+     *         The class type to look for.
+     * @param sink
+     *         Receives each matching object.
+     * @param <T>
+     *         The type parameter, extending SpatialObject.
+     *
+     * @return The number of objects passed to the sink.
+     */
+    default <T extends SpatialObject> int queryRange(Rectangle range, Class<T> clazz, Consumer<? super T> sink) {
+        return queryRange(range.x(), range.y(), range.maxX(), range.maxY(), clazz, sink);
+    }
+
+    /**
+     * Appends every indexed object of a certain type within a specified bounding box to a caller-owned buffer.
+     *
+     * @param x1
+     *         The x-coordinate of the top-left corner of the bounding box.
+     * @param y1
+     *         The y-coordinate of the top-left corner of the bounding box.
+     * @param x2
+     *         The x-coordinate of the bottom-right corner of the bounding box.
+     * @param y2
+     *         The y-coordinate of the bottom-right corner of the bounding box.
+     * @param clazz
+     *         The class type to look for.
+     * @param buffer
+     *         The list the matching objects are appended to.
+     * @param <T>
+     *         The type parameter, extending SpatialObject.
+     *
+     * @return The number of objects appended.
+     */
+    default <T extends SpatialObject> int queryRange(double x1, double y1, double x2, double y2, Class<T> clazz, List<? super T> buffer) {
+        return queryRange(x1, y1, x2, y2, clazz, (Consumer<? super T>) buffer::add);
+    }
+
+    /**
+     * Returns every indexed object of a certain type within a specified bounding box.
+     *
+     * @param x1
+     *         The x-coordinate of the top-left corner of the bounding box.
+     * @param y1
+     *         The y-coordinate of the top-left corner of the bounding box.
+     * @param x2
+     *         The x-coordinate of the bottom-right corner of the bounding box.
+     * @param y2
+     *         The y-coordinate of the bottom-right corner of the bounding box.
+     * @param clazz
+     *         The class type to look for.
+     * @param <T>
+     *         The type parameter, extending SpatialObject.
+     *
+     * @return A list of objects meeting the criteria.
+     */
+    default <T extends SpatialObject> List<T> queryRange(double x1, double y1, double x2, double y2, Class<T> clazz) {
+        List<T> result = new ArrayList<>();
+        queryRange(x1, y1, x2, y2, clazz, result);
+        return result;
+    }
+}
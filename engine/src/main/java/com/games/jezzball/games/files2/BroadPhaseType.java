@@ -0,0 +1,47 @@
+package com.games.jezzball.games.files2;
+
+/**
+ * Selects the {@link BroadPhase} implementation used for an arena.
+ * <p>
+ * {@link #QUAD_TREE} suits open, roughly square arenas. {@link #SWEEP_AND_PRUNE} suits long corridors along the x-axis, where a QuadTree keeps splitting the empty space across the corridor.
+ * {@link #SPATIAL_HASH_GRID} suits crowded arenas where the balls share one radius.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+public enum BroadPhaseType {
+    QUAD_TREE {
+        @Override
+        public BroadPhase create(Rectangle arena, double maxBallRadius) {
+            return new QuadTree(0, arena);
+        }
+    },
+    SWEEP_AND_PRUNE {
+        @Override
+        public BroadPhase create(Rectangle arena, double maxBallRadius) {
+            return new SweepAndPrune(Math.max(arena.width(), arena.height()) / WIDE_OBJECT_DIVISOR);
+        }
+    },
+    SPATIAL_HASH_GRID {
+        @Override
+        public BroadPhase create(Rectangle arena, double maxBallRadius) {
+            return new SpatialHashGrid(maxBallRadius);
+        }
+    };
+
+    // Objects wider than this fraction of the arena are kept out of the sweep, so a few long walls do not widen every query
+    private static final double WIDE_OBJECT_DIVISOR = 64;
+
+    /**
+     * Creates an empty broad-phase for the given arena.
+     *
+     * @param arena
+     *         The bounds of the arena.
+     * @param maxBallRadius
+     *         The radius of the largest ball that will be added, used to size grid cells.
+     *
+     * @return The new broad-phase.
+     */
+    public abstract BroadPhase create(Rectangle arena, double maxBallRadius);
+}
@@ -0,0 +1,230 @@
+package com.games.jezzball.games.files2;
+
+import java.util.Arrays;
+
+/**
+ * An {@link EventQueue} ordered by a calendar queue in the style of Brown, which takes constant time per event on average when event times are dense.
+ * <p>
+ * Time is cut into days of a fixed width, and the days are spread round-robin over a power-of-two number of buckets, each a list of slots sorted by time. An event goes into the bucket of its day,
+ * found from the list's tail since new events tend to come after the ones already there, and the earliest event is found by walking the days from the one last served until a bucket holds an event
+ * of that very day. A walk that goes round every bucket without finding one falls back to the earliest head of all buckets, so a sparse queue stays correct, just slower.
+ * </p>
+ * <p>
+ * The number of buckets doubles when there are more than two events per bucket and halves when there are fewer than half an event per bucket. Each time, the day is resized to three times the average
+ * gap between the earliest pending events, leaving out gaps more than twice the average, so a day holds a few events around the current time. Many events due at exactly the same time, such as the
+ * rechecks at the end of a horizon, share one bucket and are appended without a walk.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+final class CalendarEventQueue extends EventQueue {
+    private static final int    MIN_BUCKETS   = 16;
+    private static final int    SAMPLE_SIZE   = 25;
+    private static final double INITIAL_WIDTH = 1.0;
+
+    private int[]    heads   = new int[MIN_BUCKETS];
+    private int[]    tails   = new int[MIN_BUCKETS];
+    private int[]    next    = new int[capacity()];
+    private int[]    prev    = new int[capacity()];
+    private int[]    buckets = new int[capacity()];    // Bucket each pending slot is linked into
+    private int      mask    = MIN_BUCKETS - 1;    // Buckets in use less one, the arrays may be longer after shrinking
+    private double   width   = INITIAL_WIDTH;
+    private long     day     = Long.MAX_VALUE;     // The day the walk for the earliest event starts at, never after the day of any pending event
+    private int      count;
+    private int      cached  = NONE;               // The earliest slot found by the last walk, until the queue changes
+    private int[]    scratch = new int[capacity()];
+    private double[] sample  = new double[SAMPLE_SIZE];
+
+    CalendarEventQueue() {
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+    }
+
+    @Override
+    void enqueue(int slot) {
+        insert(slot);
+        if (++count > 2 * (mask + 1)) {
+            resize(2 * (mask + 1));
+        }
+    }
+
+    @Override
+    void dequeue(int slot) {
+        delete(slot);
+        if (--count == 0) {
+            day = Long.MAX_VALUE;
+        } else if (count < (mask + 1) / 2 && mask + 1 > MIN_BUCKETS) {
+            resize((mask + 1) / 2);
+        }
+    }
+
+    @Override
+    int earliest() {
+        if (cached != NONE) {
+            return cached;
+        }
+        for (int k = 0; k <= mask; k++, day++) {
+            int head = heads[(int) day & mask];
+            if (head != NONE && dayOf(getTime(head)) <= day) {
+                return cached = head;
+            }
+        }
+
+        // Nothing due within a whole year, so look at every bucket instead
+        int earliest = NONE;
+        for (int bucket = 0; bucket <= mask; bucket++) {
+            int head = heads[bucket];
+            if (head != NONE && (earliest == NONE || getTime(head) < getTime(earliest))) {
+                earliest = head;
+            }
+        }
+        day = dayOf(getTime(earliest));
+        return cached = earliest;
+    }
+
+    @Override
+    void decreased(int slot) {
+        delete(slot);
+        insert(slot);
+    }
+
+    @Override
+    void reset() {
+        Arrays.fill(heads, 0, mask + 1, NONE);
+        Arrays.fill(tails, 0, mask + 1, NONE);
+        count  = 0;
+        day    = Long.MAX_VALUE;
+        cached = NONE;
+    }
+
+    @Override
+    void grow(int capacity) {
+        next    = Arrays.copyOf(next, capacity);
+        prev    = Arrays.copyOf(prev, capacity);
+        buckets = Arrays.copyOf(buckets, capacity);
+        scratch = Arrays.copyOf(scratch, capacity);
+    }
+
+    private long dayOf(double time) {
+        return (long) Math.floor(time / width);
+    }
+
+    /**
+     * Links a slot into its bucket behind every slot due no later, so events due at the same time keep the order they were added in.
+     */
+    private void insert(int slot) {
+        double time      = getTime(slot);
+        long   eventDay  = dayOf(time);
+        int    bucket    = (int) eventDay & mask;
+        int    after     = tails[bucket];
+        while (after != NONE && getTime(after) > time) {
+            after = prev[after];
+        }
+
+        int before = after == NONE ? heads[bucket] : next[after];
+        prev[slot] = after;
+        next[slot] = before;
+        if (after == NONE) {
+            heads[bucket] = slot;
+        } else {
+            next[after] = slot;
+        }
+        if (before == NONE) {
+            tails[bucket] = slot;
+        } else {
+            prev[before] = slot;
+        }
+        buckets[slot] = bucket;
+
+        if (eventDay < day) {
+            day = eventDay;
+        }
+        if (cached != NONE && time < getTime(cached)) {
+            cached = NONE;
+        }
+    }
+
+    private void delete(int slot) {
+        int bucket = buckets[slot];
+        int after  = prev[slot];
+        int before = next[slot];
+        if (after == NONE) {
+            heads[bucket] = before;
+        } else {
+            next[after] = before;
+        }
+        if (before == NONE) {
+            tails[bucket] = after;
+        } else {
+            prev[before] = after;
+        }
+        if (slot == cached) {
+            cached = NONE;
+        }
+    }
+
+    /**
+     * Spreads the pending slots over a new number of buckets with a day width fitted to the earliest of them.
+     */
+    private void resize(int bucketCount) {
+        int pending = 0;
+        for (int bucket = 0; bucket <= mask; bucket++) {
+            for (int slot = heads[bucket]; slot != NONE; slot = next[slot]) {
+                scratch[pending++] = slot;
+            }
+        }
+
+        // The bucket arrays only ever grow, so a queue that shrinks and grows back does not allocate again
+        if (bucketCount > heads.length) {
+            heads = new int[bucketCount];
+            tails = new int[bucketCount];
+        }
+        Arrays.fill(heads, 0, bucketCount, NONE);
+        Arrays.fill(tails, 0, bucketCount, NONE);
+        width  = fitWidth(pending);
+        mask   = bucketCount - 1;
+        day    = Long.MAX_VALUE;
+        cached = NONE;
+        for (int k = 0; k < pending; k++) {
+            insert(scratch[k]);
+        }
+    }
+
+    /**
+     * @return Three times the average gap between the earliest pending slots in the scratch buffer, leaving out gaps more than twice the average, or the current width if they are too few or all
+     * due at the same time.
+     */
+    private double fitWidth(int pending) {
+        // Keep the earliest times in order by insertion, which costs one comparison per slot once the sample is full
+        int sampled = 0;
+        for (int k = 0; k < pending; k++) {
+            double time = getTime(scratch[k]);
+            if (sampled == SAMPLE_SIZE && time >= sample[sampled - 1]) {
+                continue;
+            }
+            int index = sampled == SAMPLE_SIZE ? sampled - 1 : sampled++;
+            while (index > 0 && sample[index - 1] > time) {
+                sample[index] = sample[index - 1];
+                index--;
+            }
+            sample[index] = time;
+        }
+        if (sampled < 2) {
+            return width;
+        }
+
+        double average = (sample[sampled - 1] - sample[0]) / (sampled - 1);
+        double total   = 0;
+        int    gaps    = 0;
+        for (int k = 1; k < sampled; k++) {
+            double gap = sample[k] - sample[k - 1];
+            if (gap <= 2 * average) {
+                total += gap;
+                gaps++;
+            }
+        }
+        double fitted = 3 * total / gaps;
+        return fitted > 0 ? fitted : width;
+    }
+}
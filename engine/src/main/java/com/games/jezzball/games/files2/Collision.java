@@ -0,0 +1,824 @@
+package com.games.jezzball.games.files2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Runs the JezzBall physics as an event-driven simulation: the collisions of balls and walls are predicted ahead of time over a horizon of {@code subStepSize}, kept in an {@link EventQueue}
+ * ordered by the time they happen, and resolved one by one in time order, re-predicting only the objects each collision changed.
+ * <p>
+ * Balls live in the simulation's own {@link BallStore} and, like growing walls, are only brought forward in time when an event or the end of a tick needs them. Optional modes predict every ball
+ * in parallel on a {@link ForkJoinPool}, resolve packed clusters of balls together, and keep the state in {@code double}s on the Q32.32 grid of {@link FixedPoint} for deterministic replay.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.15
+ */
+public class Collision {
+    /**
+     * The most balls a cluster gathers in cluster mode, bounding the quadratic cost of resolving its contacts.
+     */
+    public static final int MAX_CLUSTER_SIZE = 32;
+
+    private final BroadPhase                        broadPhase;   // Dynamic layer, holding the balls and the growing walls
+    private final BroadPhase                        staticLayer;  // Stationary walls, never refreshed
+    private final ParallelLeafDetector              detector;  // Predicts every ball at once in parallel mode, null otherwise
+    private final EventQueue                        collisionQueue;
+    private       double currentTime;  // Current time
+    private final double targetTime;   // Target time for continuous collision detection
+    private final double subStepSize;  // Substep size for continuous collision detection, also the horizon collisions are predicted over
+
+    // Balls live in the store and the id of a ball is its slot; walls are kept in insertion order and the id of a wall is its index
+    private final BallStore          store   = new BallStore();
+    private final List<Wall>         walls   = new ArrayList<>();
+    private final Map<Wall, Integer> wallIds = new IdentityHashMap<>();
+    private final List<Wall>         growingWalls = new ArrayList<>();  // The walls in the dynamic layer
+
+    // Per-ball scheduling state, indexed by ball id
+    private double[] ballTimes    = new double[16];  // Time each ball was last advanced to
+    private double[] wallTimes    = new double[16];  // Time each wall was last grown to, indexed by wall id
+    private int[]    wallVersions = new int[16];     // Bounds version of each wall when it was last indexed, indexed by wall id
+
+    private final List<Wall> stoppedWalls = new ArrayList<>();  // Walls with an end that reached its target while being grown, waiting to be predicted again
+
+    private double  indexTime;           // Time the positions in the broad-phase were last refreshed
+    private double  maxBallSpeed;
+    private double  maxWallGrowthRate;
+    private boolean scheduled;          // Whether the queue holds predictions for every object
+    private double  scheduledUntil;     // End of the horizon of the last parallel prediction of every ball
+    private long    resolvedCount;      // Collisions resolved so far, leaving out rechecks
+    private double  restitution = CollisionDetail.ELASTICITY;
+    private int     clusterIterations;  // Sweeps over the contacts of a cluster, zero to resolve pairs alone
+    private boolean deterministic;      // Whether the state and the event times are kept on the Q32.32 grid
+
+    // Reusable broad-phase query and narrow-phase buffers
+    private final List<Ball> ballCandidates = new ArrayList<>();
+    private final List<Ball> nearbyBalls    = new ArrayList<>();
+    private final List<Wall> wallCandidates = new ArrayList<>();
+    private final List<Ball> cluster        = new ArrayList<>();
+    private final Consumer<Ball> ballCandidateSink = ballCandidates::add;  // Kept, so queries do not create a sink each
+    private final Consumer<Wall> wallCandidateSink = wallCandidates::add;
+    private       int[]      candidateIds   = new int[16];
+    private       double[]   impactTimes    = new double[16];
+    private final double[]   contact        = new double[2];
+
+    /**
+     * Constructs a simulation over a 1000 by 1000 arena indexed by a QuadTree.
+     */
+    public Collision(double currentTime, double targetTime, double subStepSize) {
+        this(currentTime, targetTime, subStepSize, new QuadTree(0, new Rectangle(0, 0, 1000, 1000)));
+    }
+
+    /**
+     * Constructs a simulation that indexes its objects in the given broad-phase, typically created for the arena with {@link BroadPhaseType#create(Rectangle, double)}.
+     *
+     * @param currentTime
+     *         The time the simulation starts at.
+     * @param targetTime
+     *         Target time for continuous collision detection.
+     * @param subStepSize
+     *         The horizon collisions are predicted over.
+     * @param broadPhase
+     *         An empty broad-phase to index the arena's objects in.
+     */
+    public Collision(double currentTime, double targetTime, double subStepSize, BroadPhase broadPhase) {
+        this(currentTime, targetTime, subStepSize, broadPhase, null);
+    }
+
+    /**
+     * Constructs a simulation that predicts collisions in parallel on the given pool.
+     *
+     * @param currentTime
+     *         The time the simulation starts at.
+     * @param targetTime
+     *         Target time for continuous collision detection.
+     * @param subStepSize
+     *         The horizon collisions are predicted over.
+     * @param broadPhase
+     *         An empty broad-phase to index the arena's objects in. The stationary walls are indexed in an {@link BroadPhase#emptyCopy() empty copy} of it.
+     * @param pool
+     *         The pool to predict collisions on, or null to predict them on the calling thread.
+     */
+    public Collision(double currentTime, double targetTime, double subStepSize, BroadPhase broadPhase, ForkJoinPool pool) {
+        this(currentTime, targetTime, subStepSize, broadPhase, pool, EventQueueType.INDEXED_HEAP);
+    }
+
+    /**
+     * Constructs a simulation that schedules its events in the given kind of queue.
+     *
+     * @param currentTime
+     *         The time the simulation starts at.
+     * @param targetTime
+     *         Target time for continuous collision detection.
+     * @param subStepSize
+     *         The horizon collisions are predicted over.
+     * @param broadPhase
+     *         An empty broad-phase to index the arena's objects in. The stationary walls are indexed in an {@link BroadPhase#emptyCopy() empty copy} of it.
+     * @param pool
+     *         The pool to predict collisions on, or null to predict them on the calling thread.
+     * @param eventQueueType
+     *         The kind of queue to schedule events in.
+     */
+    public Collision(double currentTime, double targetTime, double subStepSize, BroadPhase broadPhase, ForkJoinPool pool, EventQueueType eventQueueType) {
+        if (subStepSize <= 0) {
+            throw new IllegalArgumentException("Substep size must be positive");
+        }
+        this.currentTime    = currentTime;
+        this.targetTime     = targetTime;
+        this.subStepSize    = subStepSize;
+        this.indexTime      = currentTime;
+        this.broadPhase     = broadPhase;
+        this.staticLayer    = broadPhase.emptyCopy();
+        this.detector       = pool != null ? new ParallelLeafDetector(pool) : null;
+        this.collisionQueue = eventQueueType.create();
+    }
+
+    /**
+     * Adds a ball at its current position, taken to be its position at the current time.
+     * <p>
+     * The ball is moved into this simulation's store, so it must not be added to another simulation while this one is in use.
+     * </p>
+     *
+     * @param ball
+     *         The ball to add.
+     */
+    public void addBall(Ball ball) {
+        if (ball.getStore() != store) {
+            int id = store.adopt(ball);
+            if (id == ballTimes.length) {
+                ballTimes = Arrays.copyOf(ballTimes, id * 2);
+            }
+            ballTimes[id] = currentTime;
+        }
+        broadPhase.insert(ball);
+        scheduled = false;
+    }
+
+    /**
+     * Adds a wall at its current extent, taken to be its extent at the current time.
+     *
+     * @param wall
+     *         The wall to add.
+     */
+    public void addWall(Wall wall) {
+        if (deterministic) {
+            checkOnGrid(wall);
+        }
+        if (wallIds.putIfAbsent(wall, walls.size()) == null) {
+            if (walls.size() == wallTimes.length) {
+                wallTimes    = Arrays.copyOf(wallTimes, walls.size() * 2);
+                wallVersions = Arrays.copyOf(wallVersions, walls.size() * 2);
+            }
+            wallTimes[walls.size()]    = currentTime;
+            wallVersions[walls.size()] = wall.getBoundsVersion();
+            walls.add(wall);
+            if (wall.isGrowing()) {
+                growingWalls.add(wall);
+            }
+        }
+        (growingWalls.contains(wall) ? broadPhase : staticLayer).insert(wall);
+        scheduled = false;
+    }
+
+    public double getCurrentTime() {
+        return currentTime;
+    }
+
+    /**
+     * @return The number of collisions resolved so far, ball-ball, ball-wall and wall-wall alike, leaving out the rechecks that only predict a ball again.
+     */
+    long getResolvedCount() {
+        return resolvedCount;
+    }
+
+    /**
+     * @return The number of events scheduled and not yet due, of every kind.
+     */
+    int getPendingCount() {
+        return collisionQueue.size();
+    }
+
+    /**
+     * Sets the coefficient of restitution of every collision resolved from now on.
+     *
+     * @param restitution
+     *         The fraction of the approach speed objects separate at, 1 for perfectly elastic collisions and 0 for perfectly inelastic ones.
+     *
+     * @throws IllegalArgumentException
+     *         If the restitution is outside of [0, 1].
+     */
+    public void setRestitution(double restitution) {
+        if (!(restitution >= 0 && restitution <= 1)) {
+            throw new IllegalArgumentException("Restitution must be within [0, 1]");
+        }
+        this.restitution = restitution;
+    }
+
+    /**
+     * Switches cluster mode on or off. In cluster mode, every ball-ball collision gathers the balls touching the pair, up to {@link #MAX_CLUSTER_SIZE} of them, and resolves their contacts
+     * together.
+     *
+     * @param clusterIterations
+     *         The maximum number of sweeps over the contacts of a cluster, or zero to resolve each collision on its own.
+     *
+     * @throws IllegalArgumentException
+     *         If the number is negative.
+     */
+    public void setClusterIterations(int clusterIterations) {
+        if (clusterIterations < 0) {
+            throw new IllegalArgumentException("Cluster iterations must not be negative");
+        }
+        this.clusterIterations = clusterIterations;
+    }
+
+    /**
+     * Switches deterministic mode on or off. Switching it on brings every ball to the current time and rounds its state, and the current time, to the Q32.32 grid.
+     * <p>
+     * In deterministic mode every event time is rounded up and every point of contact rounded to the grid, and walls must lie on it too. Only moving the balls and solving ball-ball contacts use
+     * integer arithmetic; ball-wall contacts, impulses and wall growth are computed in {@code double}s whose results Java specifies to the bit and rounded back to the grid.
+     * </p>
+     *
+     * @param deterministic
+     *         Whether to keep the state and the event times on the Q32.32 grid.
+     *
+     * @throws IllegalArgumentException
+     *         If a wall does not lie on the Q32.32 grid.
+     */
+    public void setDeterministic(boolean deterministic) {
+        if (deterministic == this.deterministic) {
+            return;
+        }
+        if (deterministic) {
+            walls.forEach(Collision::checkOnGrid);
+            store.advanceAll(ballTimes, currentTime);
+            growWalls();
+            currentTime = FixedPoint.round(currentTime);
+            Arrays.fill(ballTimes, currentTime);
+            Arrays.fill(wallTimes, currentTime);
+        }
+        store.setOnGrid(deterministic);
+        this.deterministic = deterministic;
+        scheduled = false;
+    }
+
+    /**
+     * Computes a checksum of the state of every ball and wall at the current time, which every object is brought to at the end of an update. In deterministic mode, simulations that ran through
+     * the same updates from the same state have the same checksum, so peers in lockstep or a replay can compare it to detect a divergence.
+     *
+     * @return The checksum.
+     */
+    public long getStateChecksum() {
+        long checksum = mix(0, FixedPoint.fromDouble(currentTime));
+        for (int id = 0; id < store.size(); id++) {
+            checksum = mix(checksum, FixedPoint.fromDouble(store.getX(id)));
+            checksum = mix(checksum, FixedPoint.fromDouble(store.getY(id)));
+            checksum = mix(checksum, FixedPoint.fromDouble(store.getVx(id)));
+            checksum = mix(checksum, FixedPoint.fromDouble(store.getVy(id)));
+        }
+        for (Wall wall : walls) {
+            checksum = mix(checksum, wall.getCurrentEnd1().fixedX());
+            checksum = mix(checksum, wall.getCurrentEnd1().fixedY());
+            checksum = mix(checksum, wall.getCurrentEnd2().fixedX());
+            checksum = mix(checksum, wall.getCurrentEnd2().fixedY());
+            checksum = mix(checksum, wall.isGrowing() ? 1 : 0);
+        }
+        return checksum;
+    }
+
+    /**
+     * Folds a value into a checksum, spreading its bits with the finalizer of SplitMix64 first.
+     */
+    private static long mix(long checksum, long value) {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return 31 * checksum + (z ^ (z >>> 31));
+    }
+
+    /**
+     * Checks that a wall lies on the Q32.32 grid and grows by it, as deterministic mode requires.
+     */
+    private static void checkOnGrid(Wall wall) {
+        if (!wall.getPosition().isOnGrid() || !wall.getCurrentEnd1().isOnGrid() || !wall.getCurrentEnd2().isOnGrid() || !wall.getTarget1().isOnGrid() || !wall.getTarget2().isOnGrid()
+            || !FixedPoint.isExact(wall.getSize() / 2.0) || wall.getGrowthRate() != Math.rint(wall.getGrowthRate())) {
+            throw new IllegalArgumentException("Wall does not lie on the Q32.32 grid: " + wall.getPosition());
+        }
+    }
+
+    /**
+     * Advances the simulation by the given time, resolving every collision that happens within it in time order. In deterministic mode the end of the step is rounded to the Q32.32 grid.
+     *
+     * @param deltaTime
+     *         The time to advance by.
+     */
+    public void update(double deltaTime) {
+        double endTime = deterministic ? FixedPoint.round(currentTime + deltaTime) : currentTime + deltaTime;
+        if (!scheduled) {
+            scheduleAll();
+        }
+
+        // 1. Resolve every event that is due within the step, in time order. In parallel mode, every ball is predicted again at once whenever the horizon runs out
+        while (detector != null && scheduledUntil < endTime) {
+            resolveCollisions(scheduledUntil);
+            currentTime = scheduledUntil;
+            scheduleAll();
+        }
+        resolveCollisions(endTime);
+
+        // 2. bring every ball and wall to the end of the step and the broad-phase up to date
+        currentTime = endTime;
+        store.advanceAll(ballTimes, endTime);
+        growWalls();
+        refreshIndex();
+        predictStoppedWalls();
+    }
+
+    /**
+     * Drops every scheduled event and predicts all objects from scratch.
+     * <p>
+     * In parallel mode the balls are predicted by the detector, all at the current time, and get no rechecks of their own: the next call covers them when the horizon runs out.
+     * </p>
+     */
+    private void scheduleAll() {
+        collisionQueue.clear();
+        growWalls();
+        if (detector != null) {
+            store.advanceAll(ballTimes, currentTime);
+            refreshIndex();
+            detector.detect(store, walls, subStepSize, this::schedule);
+            scheduledUntil = onGrid(currentTime + subStepSize);
+        } else {
+            refreshIndex();
+            for (int id = 0; id < store.size(); id++) {
+                predict(store.get(id), true);
+            }
+        }
+        // Every prediction is being made afresh, so walls stopped by growing them only need to move to the static layer
+        for (Wall wall : stoppedWalls) {
+            settle(wall);
+        }
+        stoppedWalls.clear();
+        predictWallStops();
+        scheduled = true;
+    }
+
+    private void resolveCollisions(double endTime) {
+        while (!collisionQueue.isEmpty() && collisionQueue.peekTime() <= endTime) {
+            int event = collisionQueue.poll();
+            currentTime = collisionQueue.getTime(event);
+
+            // Walls are grown to the time of the event first, since an end reaching its target on the way makes the event stale
+            growWallsOf(event);
+            if (isCurrent(event)) {
+                if (collisionQueue.getKind(event) != EventQueue.Kind.RECHECK) {
+                    resolvedCount++;
+                }
+                resolve(event);
+            }
+            collisionQueue.free(event);
+            predictStoppedWalls();
+        }
+    }
+
+    /**
+     * Moves the balls of a due collision to the point of impact, applies it with the resolvers of {@link CollisionDetail} and re-predicts only the objects it changed. A wall whose end stopped,
+     * against another wall or a ball, changes the predictions of the balls near it and of the ends that may run into it. A recheck only predicts its ball again.
+     */
+    private void resolve(int event) {
+        int first  = collisionQueue.getFirst(event);
+        int second = collisionQueue.getSecond(event);
+        switch (collisionQueue.getKind(event)) {
+            case BALL_BALL -> {
+                advanceTo(first, currentTime);
+                advanceTo(second, currentTime);
+                CollisionDetail.resolveBallToBall(store.get(first), store.get(second), restitution);
+                if (clusterIterations > 0) {
+                    gatherCluster(first, second);
+                    Ball.resolveContacts(cluster, restitution, clusterIterations);
+                    for (int k = 0; k < cluster.size(); k++) {
+                        predict(cluster.get(k), false);
+                    }
+                } else {
+                    predict(store.get(first), false);
+                    predict(store.get(second), false);
+                }
+            }
+            case BALL_WALL -> {
+                Wall wall    = walls.get(second);
+                int  version = wall.getCollisionCount();
+                advanceTo(first, currentTime);
+                CollisionDetail.resolveBallToWall(store.get(first), wall, collisionQueue.getX(event), collisionQueue.getY(event), restitution);
+                predict(store.get(first), false);
+                if (wall.getCollisionCount() != version) {
+                    predictStoppedWall(wall);  // The ball stopped a growing end
+                }
+            }
+            case WALL_WALL -> {
+                Wall wall = walls.get(first);
+                CollisionDetail.resolveWallToWall(wall, collisionQueue.getX(event), collisionQueue.getY(event));
+                predictStoppedWall(wall);
+            }
+            case RECHECK -> predict(store.get(first), false);
+        }
+    }
+
+    /**
+     * Collects the two balls of a collision into {@link #cluster}, followed by the balls touching them and the balls touching those in turn, up to {@link #MAX_CLUSTER_SIZE} balls. Every ball
+     * in the cluster is advanced to the current time.
+     */
+    private void gatherCluster(int first, int second) {
+        cluster.clear();
+        cluster.add(store.get(first));
+        cluster.add(store.get(second));
+
+        // The balls are indexed where they were when the broad-phase was refreshed, so the query is widened by how far they can have moved since
+        double slack = maxBallSpeed * (currentTime - indexTime) + Ball.CONTACT_TOLERANCE;
+        for (int k = 0; k < cluster.size() && cluster.size() < MAX_CLUSTER_SIZE; k++) {
+            Ball ball = cluster.get(k);
+            ballCandidates.clear();
+            querySweptRange(broadPhase, ball, 0, slack, Ball.class, ballCandidateSink);
+            for (int c = 0; c < ballCandidates.size() && cluster.size() < MAX_CLUSTER_SIZE; c++) {
+                Ball candidate = ballCandidates.get(c);
+                advanceTo(candidate.getIndex(), currentTime);
+                if (!inCluster(candidate) && ball.touches(candidate)) {
+                    cluster.add(candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether a ball is already in {@link #cluster}, by identity since balls compare equal by their state.
+     */
+    private boolean inCluster(Ball ball) {
+        for (int k = 0; k < cluster.size(); k++) {
+            if (cluster.get(k) == ball) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Predicts the collisions of a ball within the horizon and schedules them, followed by a recheck at the end of the horizon. The events the ball already had are removed first, including those
+     * predicted from the side of other balls, since the ball finds the same ones again.
+     * <p>
+     * The ball queries the broad-phase with the box it sweeps over the horizon. The other balls are indexed at the positions they had when the broad-phase was refreshed, so the box is widened by how far the fastest
+     * ball can have moved since then plus how far it can move within the horizon. The candidates are then solved in one batch by {@link BallStore#timesOfImpact(int, int[], int, double[])} and
+     * collision details are only created for the hits within the horizon.
+     * </p>
+     *
+     * @param ball
+     *         The ball to predict.
+     * @param higherIdsOnly
+     *         Whether to skip balls with a lower id, used when every ball is predicted so that each pair is only tested once. The ball's events are then left alone, since the other balls of
+     *         its pairs are predicted in the same pass.
+     */
+    private void predict(Ball ball, boolean higherIdsOnly) {
+        int id = ball.getIndex();
+        advanceTo(id, currentTime);
+        if (!higherIdsOnly) {
+            collisionQueue.invalidateBall(id);
+        }
+
+        // An impulse can leave a ball faster than any ball was when the index was refreshed, and the queries of the other balls must still reach it
+        double vx = store.getVx(id);
+        double vy = store.getVy(id);
+        maxBallSpeed = Math.max(maxBallSpeed, Math.sqrt(vx * vx + vy * vy));
+
+        double ballSlack = maxBallSpeed * (currentTime - indexTime + subStepSize);
+        ballCandidates.clear();
+        querySweptRange(broadPhase, ball, subStepSize, ballSlack, Ball.class, ballCandidateSink);
+        if (ballCandidates.size() > candidateIds.length) {
+            candidateIds = new int[Math.max(ballCandidates.size(), candidateIds.length * 2)];
+            impactTimes  = new double[candidateIds.length];
+        }
+        int count = 0;
+        for (int k = 0; k < ballCandidates.size(); k++) {
+            int otherId = ballCandidates.get(k).getIndex();
+            if (otherId == id || (higherIdsOnly && otherId < id)) {
+                continue;
+            }
+            advanceTo(otherId, currentTime);
+            candidateIds[count++] = otherId;
+        }
+        if (store.timesOfImpact(id, candidateIds, count, impactTimes) > 0) {
+            for (int k = 0; k < count; k++) {
+                double time = impactTimes[k];
+                if (time <= subStepSize) {
+                    schedule(EventQueue.Kind.BALL_BALL, time, store.getX(id) + store.getVx(id) * time, store.getY(id) + store.getVy(id) * time, id, candidateIds[k]);
+                }
+            }
+        }
+
+        wallCandidates.clear();
+        querySweptRange(broadPhase, ball, subStepSize, maxWallGrowthRate * (currentTime - indexTime + subStepSize), Wall.class, wallCandidateSink);
+        querySweptRange(staticLayer, ball, subStepSize, 0, Wall.class, wallCandidateSink);
+        for (int k = 0; k < wallCandidates.size(); k++) {
+            Wall wall = wallCandidates.get(k);
+            growTo(wall, currentTime);
+            double time = ball.calculateTimeToWall(wall, contact);
+            if (time <= subStepSize) {
+                schedule(EventQueue.Kind.BALL_WALL, time, contact[0], contact[1], id, wallIds.get(wall));
+            }
+        }
+
+        collisionQueue.push(EventQueue.Kind.RECHECK, onGrid(currentTime + subStepSize), 0, 0, id, EventQueue.NONE, ball.getCollisionCount(), 0);
+    }
+
+    /**
+     * Grows every growing wall to the current time.
+     */
+    private void growWalls() {
+        for (int k = 0; k < growingWalls.size(); k++) {
+            growTo(growingWalls.get(k), currentTime);
+        }
+    }
+
+    /**
+     * Grows a wall to the given time, noting it in {@link #stoppedWalls} if one of its ends reached its target on the way. This normally happens through a completion event at exactly the right
+     * time, but a step that ends on the same time can get there first.
+     */
+    private void growTo(Wall wall, double time) {
+        if (!wall.isGrowing()) {
+            return;
+        }
+        Integer id = wallIds.get(wall);
+        if (id != null && wallTimes[id] != time) {
+            int version = wall.getCollisionCount();
+            wall.update(time - wallTimes[id]);
+            wallTimes[id] = time;
+            if (wall.getCollisionCount() != version) {
+                reindex(id);
+                stoppedWalls.add(wall);
+            }
+        }
+    }
+
+    private void growWallsOf(int event) {
+        switch (collisionQueue.getKind(event)) {
+            case BALL_WALL -> growTo(walls.get(collisionQueue.getSecond(event)), currentTime);
+            case WALL_WALL -> {
+                growTo(walls.get(collisionQueue.getFirst(event)), currentTime);
+                growTo(walls.get(collisionQueue.getSecond(event)), currentTime);
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Makes the predictions again that the walls in {@link #stoppedWalls} invalidated. Making them may grow and stop further walls, which are then handled in turn.
+     */
+    private void predictStoppedWalls() {
+        while (!stoppedWalls.isEmpty()) {
+            predictStoppedWall(stoppedWalls.remove(stoppedWalls.size() - 1));
+        }
+    }
+
+    /**
+     * Refreshes the indexed bounds of a wall whose end stopped, and moves it to the static layer if it has stopped growing altogether. Never called while {@link #growingWalls} is iterated.
+     */
+    private void settle(Wall wall) {
+        reindex(wallIds.get(wall));
+        if (!wall.isGrowing() && growingWalls.remove(wall)) {
+            broadPhase.remove(wall);
+            staticLayer.insert(wall);
+        }
+    }
+
+    /**
+     * Makes the predictions again that a wall whose end stopped invalidated: those of the balls near it and those of the ends that may run into it, after removing every event it took part in. A
+     * wall that has stopped growing altogether moves to the static layer.
+     */
+    private void predictStoppedWall(Wall wall) {
+        settle(wall);
+        collisionQueue.invalidateWall(wallIds.get(wall));
+        predictNearbyBalls(wall);
+        predictWallStops(wall);
+    }
+
+    /**
+     * Re-predicts the balls that may reach a wall within the horizon.
+     */
+    private void predictNearbyBalls(Wall wall) {
+        double slack = maxBallSpeed * (currentTime - indexTime + subStepSize) + maxWallGrowthRate * subStepSize;
+        AABB   aabb  = wall.getAABB();
+        nearbyBalls.clear();
+        broadPhase.queryRange(aabb.minX() - slack, aabb.minY() - slack, aabb.maxX() + slack, aabb.maxY() + slack, Ball.class, nearbyBalls);
+        for (Ball ball : nearbyBalls) {
+            predict(ball, false);
+        }
+    }
+
+    /**
+     * Predicts where every growing end of every wall stops and schedules it as a completion event, as {@link #predictWallStops(Wall)} does for a change to no wall in particular.
+     */
+    private void predictWallStops() {
+        predictWallStops(null);
+    }
+
+    /**
+     * Predicts where the growing ends of the walls that a changed wall may affect stop, and schedules each as a completion event. Each end is tested against the stationary walls in the box it
+     * sweeps on its way to its target, against every other growing wall, which may only grow into that box later, and against the wall it is meant to collide into; the first contact wins, and
+     * reaching the target stops it otherwise.
+     * <p>
+     * Only a growing wall whose swept box meets the one of the changed wall, or that is meant to collide into it, can have been heading for it, so only those are predicted again; the others keep
+     * their stops. The ends of a wall never leave its swept box, so the box of the changed wall still covers wherever it was predicted to be before it changed. The stops scheduled before are
+     * removed first, so each growing end has at most one pending stop however often the walls around it change, and the queue stays as large as the arena rather than growing with its history.
+     * </p>
+     *
+     * @param changed
+     *         The wall that changed, or null to predict every growing wall again.
+     */
+    private void predictWallStops(Wall changed) {
+        growWalls();
+        AABB changedBox = changed != null ? sweptBox(changed) : null;
+        for (Wall wall : growingWalls) {
+            if (!wall.isGrowing()) {
+                continue;  // Stopped on the way here, moves to the static layer once it is predicted again
+            }
+            AABB box = sweptBox(wall);
+            if (changedBox != null && !overlap(box, changedBox) && wall.getCollideInto(true) != changed && wall.getCollideInto(false) != changed) {
+                continue;
+            }
+            wallCandidates.clear();
+            staticLayer.queryRange(box.minX(), box.minY(), box.maxX(), box.maxY(), Wall.class, wallCandidates);
+
+            collisionQueue.removeAll(EventQueue.Kind.WALL_WALL, wallIds.get(wall));
+            predictWallStop(wall, true);
+            predictWallStop(wall, false);
+        }
+    }
+
+    /**
+     * Schedules the first contact of one end of a wall with the stationary walls in {@link #wallCandidates}, the growing walls, its collide-into wall or its target.
+     */
+    private void predictWallStop(Wall wall, boolean end1) {
+        Optional<CollisionDetail<Wall, Wall>> first = end1 ? wall.willReachTarget1() : wall.willReachTarget2();
+        if (first.isEmpty()) {
+            return;
+        }
+        Wall collideInto = wall.getCollideInto(end1);
+        if (collideInto != null) {
+            first = earlier(first, end1 ? wall.willCollideWithWallEnd1(collideInto) : wall.willCollideWithWallEnd2(collideInto));
+        }
+        for (Wall other : wallCandidates) {
+            first = earlier(first, end1 ? wall.willCollideWithWallEnd1(other) : wall.willCollideWithWallEnd2(other));
+        }
+        for (Wall other : growingWalls) {
+            first = earlier(first, end1 ? wall.willCollideWithWallEnd1(other) : wall.willCollideWithWallEnd2(other));
+        }
+        first.ifPresent(this::schedule);
+    }
+
+    /**
+     * Returns the box a wall sweeps on its way to its targets, which holds every point of it from now on.
+     */
+    private static AABB sweptBox(Wall wall) {
+        double     halfSize = wall.getSize() / 2.0;
+        AABB       aabb     = wall.getAABB();
+        Coordinate target1  = wall.getTarget1();
+        Coordinate target2  = wall.getTarget2();
+        return new AABB(Math.min(aabb.minX(), Coordinate.minX(target1, target2) - halfSize), Math.min(aabb.minY(), Coordinate.minY(target1, target2) - halfSize),
+                        Math.max(aabb.maxX(), Coordinate.maxX(target1, target2) + halfSize), Math.max(aabb.maxY(), Coordinate.maxY(target1, target2) + halfSize));
+    }
+
+    private static boolean overlap(AABB a, AABB b) {
+        return a.minX() <= b.maxX() && a.maxX() >= b.minX() && a.minY() <= b.maxY() && a.maxY() >= b.minY();
+    }
+
+    private static Optional<CollisionDetail<Wall, Wall>> earlier(Optional<CollisionDetail<Wall, Wall>> first, Optional<CollisionDetail<Wall, Wall>> second) {
+        if (second.isPresent() && (first.isEmpty() || second.get().timeToCollision() < first.get().timeToCollision())) {
+            return second;
+        }
+        return first;
+    }
+
+    /**
+     * Checks whether the objects of an event are still in the state it was predicted from.
+     */
+    private boolean isCurrent(int event) {
+        EventQueue.Kind kind = collisionQueue.getKind(event);
+        int first  = collisionQueue.getFirst(event);
+        int second = collisionQueue.getSecond(event);
+        if (kind == EventQueue.Kind.RECHECK) {
+            return collisionCountOf(kind, first, true) == collisionQueue.getCount1(event);
+        }
+        return collisionCountOf(kind, first, true) == collisionQueue.getCount1(event) && collisionCountOf(kind, second, false) == collisionQueue.getCount2(event);
+    }
+
+    /**
+     * Schedules a collision predicted at the current time, recording the collision counts of the objects involved. A collision of a ball is keyed by its pair, so a pair predicted from both sides is
+     * only scheduled once; the stops of a wall are not, since the two ends of a wall can stop against the same wall.
+     */
+    private void schedule(EventQueue.Kind kind, double timeToCollision, double x, double y, int first, int second) {
+        double time   = onGrid(currentTime + timeToCollision);
+        if (deterministic) {
+            x = FixedPoint.round(x);
+            y = FixedPoint.round(y);
+        }
+        int    count1 = collisionCountOf(kind, first, true);
+        int    count2 = collisionCountOf(kind, second, false);
+        if (kind == EventQueue.Kind.WALL_WALL) {
+            collisionQueue.push(kind, time, x, y, first, second, count1, count2);
+        } else {
+            collisionQueue.offer(kind, time, x, y, first, second, count1, count2);
+        }
+    }
+
+    /**
+     * Schedules a collision the detector or a wall predicted as a collision detail.
+     */
+    private void schedule(CollisionDetail<?, ?> detail) {
+        if (detail.object1() instanceof Ball ball && detail.object2() instanceof Ball other) {
+            schedule(EventQueue.Kind.BALL_BALL, detail.timeToCollision(), detail.collisionX(), detail.collisionY(), ball.getIndex(), other.getIndex());
+        } else if (detail.object1() instanceof Ball ball && detail.object2() instanceof Wall wall) {
+            schedule(EventQueue.Kind.BALL_WALL, detail.timeToCollision(), detail.collisionX(), detail.collisionY(), ball.getIndex(), wallIds.get(wall));
+        } else if (detail.object1() instanceof Wall wall && detail.object2() instanceof Wall other) {
+            schedule(EventQueue.Kind.WALL_WALL, detail.timeToCollision(), detail.collisionX(), detail.collisionY(), wallIds.get(wall), wallIds.get(other));
+        } else {
+            throw new IllegalArgumentException("Unsupported collision objects: " + detail.object1() + ", " + detail.object2());
+        }
+    }
+
+    /**
+     * Looks up the collision count of one object of an event of the given kind by its id.
+     */
+    private int collisionCountOf(EventQueue.Kind kind, int id, boolean isFirst) {
+        boolean isBall = switch (kind) {
+            case BALL_BALL, RECHECK -> true;
+            case BALL_WALL -> isFirst;
+            case WALL_WALL -> false;
+        };
+        return isBall ? store.get(id).getCollisionCount() : walls.get(id).getCollisionCount();
+    }
+
+    /**
+     * Rounds the time of an event up to the Q32.32 grid in deterministic mode, and leaves it as it is otherwise. Rounding up brings the objects of an event to a time at or just after their contact,
+     * never before it, so they are never resolved while still apart; they overlap by no more than they approach in 2<sup>-32</sup>, well within {@link Ball#CONTACT_TOLERANCE}.
+     */
+    private double onGrid(double time) {
+        return deterministic ? FixedPoint.ceil(time) : time;
+    }
+
+    private void advanceTo(int id, double time) {
+        if (ballTimes[id] != time) {
+            store.advance(id, time - ballTimes[id]);
+            ballTimes[id] = time;
+        }
+    }
+
+    /**
+     * Refreshes the indexed bounds of every ball that moved and every growing wall whose bounds changed, and recomputes the speed bounds used to widen broad-phase queries.
+     */
+    private void refreshIndex() {
+        for (int id = store.nextMoved(0); id >= 0; id = store.nextMoved(id + 1)) {
+            broadPhase.update(store.get(id));
+        }
+        store.clearMoved();
+        maxBallSpeed = store.maxSpeed();
+
+        maxWallGrowthRate = 0;
+        for (int k = 0; k < growingWalls.size(); k++) {
+            Wall wall = growingWalls.get(k);
+            reindex(wallIds.get(wall));
+            if (wall.isGrowing()) {
+                maxWallGrowthRate = Math.max(maxWallGrowthRate, wall.getGrowthRate());
+            }
+        }
+        indexTime = currentTime;
+    }
+
+    /**
+     * Updates the indexed bounds of a wall, unless they have not changed since it was last indexed.
+     */
+    private void reindex(int id) {
+        Wall wall    = walls.get(id);
+        int  version = wall.getBoundsVersion();
+        if (wallVersions[id] != version) {
+            broadPhase.update(wall);
+            wallVersions[id] = version;
+        }
+    }
+
+    /**
+     * Queries one layer of the broad-phase with the box a ball sweeps over the given time, grown on every side by the given slack.
+     */
+    private <T extends SpatialObject> void querySweptRange(BroadPhase layer, Ball ball, double time, double slack, Class<T> clazz, Consumer<? super T> sink) {
+        int    id     = ball.getIndex();
+        double x      = store.getX(id);
+        double y      = store.getY(id);
+        double reach  = store.getRadius(id) + slack;
+        double endX   = x + store.getVx(id) * time;
+        double endY   = y + store.getVy(id) * time;
+
+        layer.queryRange(Math.min(x, endX) - reach, Math.min(y, endY) - reach, Math.max(x, endX) + reach, Math.max(y, endY) + reach, clazz, sink);
+    }
+}
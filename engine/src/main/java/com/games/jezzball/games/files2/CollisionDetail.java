@@ -0,0 +1,183 @@
+package com.games.jezzball.games.files2;
+
+import java.util.Optional;
+
+/**
+ * A predicted collision between two objects, which are balls or walls, and the means to apply it.
+ * <p>
+ * The time is counted from the moment the prediction was made. {@link #resolve()} moves both objects on to the moment of impact and applies it, {@link #partialUpdate(double)} moves them only part of
+ * the way and predicts the collision again from there. Balls exchange impulses weighted by their masses with the restitution {@link #ELASTICITY}, so a perfectly elastic collision conserves the kinetic
+ * energy of the balls; the static resolvers apply the same rules, with any restitution, to objects the caller has already moved, which is what {@link Collision} does with the events it keeps in its own queue.
+ * </p>
+ *
+ * @param timeToCollision
+ *         Time until the collision occurs
+ * @param collisionX
+ *         The X-coordinate of the collision
+ * @param collisionY
+ *         The Y-coordinate of the collision
+ * @param object1
+ *         The first object involved in the collision
+ * @param object2
+ *         The second object involved in the collision
+ *
+ * @author Colin Jokisch
+ * @version 1.2
+ */
+public record CollisionDetail<T1, T2>(double timeToCollision, double collisionX, double collisionY, T1 object1, T2 object2) {
+    static final double ELASTICITY = 1.0;  // Coefficient of restitution of the collisions a detail resolves, 1 for perfectly elastic
+
+    /**
+     * Moves the objects on to the time of the collision and applies it. Both balls of a pair are moved, a ball hitting a wall is moved along with the growth of the wall, and a wall end running
+     * into another wall or a ball is stopped at the point of impact unless it already reached its target on the way.
+     */
+    public void resolve() {
+        if (object1 instanceof Ball ball1 && object2 instanceof Ball ball2) {
+            ball1.advance(timeToCollision);
+            ball2.advance(timeToCollision);
+            resolveBallToBall(ball1, ball2, ELASTICITY);
+        } else if (object1 instanceof Ball ball && object2 instanceof Wall wall) {
+            advanceBallAndWall(ball, wall, timeToCollision);
+            resolveBallToWall(ball, wall, collisionX, collisionY, ELASTICITY);
+        } else if (object1 instanceof Wall wall && object2 instanceof Ball ball) {
+            advanceBallAndWall(ball, wall, timeToCollision);
+            resolveBallToWall(ball, wall, collisionX, collisionY, ELASTICITY);
+        } else if (object1 instanceof Wall wall1 && object2 instanceof Wall wall2) {
+            boolean isEnd1 = isEnd1Colliding(wall1);
+            advanceWalls(wall1, wall2, timeToCollision);
+            if (wall1.getEndVelocity(isEnd1) != 0) {
+                resolveWallToWall(wall1, collisionX, collisionY);
+            }
+        }
+    }
+
+    /**
+     * Applies the impulse of a collision between two balls that touch, with the given coefficient of restitution.
+     */
+    static void resolveBallToBall(Ball ball1, Ball ball2, double elasticity) {
+        ball1.resolveCollision(ball2, elasticity);
+    }
+
+    /**
+     * Bounces a ball off the point of a wall it touches, with the given coefficient of restitution. A growing end the ball touches is stopped first, so the ball bounces off it as off a standing
+     * wall; see {@link Wall#stopEndTouching(Coordinate)}.
+     */
+    static void resolveBallToWall(Ball ball, Wall wall, double collisionX, double collisionY, double elasticity) {
+        wall.stopEndTouching(ball.getPosition());
+        ball.bounceOffWall(wall, collisionX, collisionY, elasticity);
+    }
+
+    /**
+     * Stops the end of a wall that reached the point of impact.
+     */
+    static void resolveWallToWall(Wall wall, double collisionX, double collisionY) {
+        wall.stopEndAt(new Coordinate(collisionX, collisionY));
+    }
+
+    /**
+     * Moves the objects on by part of the time to the collision and predicts it again from where they are then. Balls are predicted from their current velocities, so a collision that something else
+     * changed in the meantime may have moved or gone away; a wall end keeps its point of impact and only gets closer to it.
+     *
+     * @param deltaTime
+     *         The time to move the objects on by, shorter than the time to the collision.
+     *
+     * @return The collision as seen after the update, or an empty Optional if it no longer happens.
+     *
+     * @throws IllegalArgumentException
+     *         If the time is negative or reaches the collision, which is then due to be resolved instead.
+     */
+    public Optional<CollisionDetail<T1, T2>> partialUpdate(double deltaTime) {
+        if (deltaTime < 0 || deltaTime >= timeToCollision) {
+            throw new IllegalArgumentException("Time " + deltaTime + " is outside of [0, " + timeToCollision + ")");
+        }
+        if (object1 instanceof Ball ball1 && object2 instanceof Ball ball2) {
+            return handleBallBallCollision(ball1, ball2, deltaTime);
+        }
+
+        if (object1 instanceof Ball ball && object2 instanceof Wall wall) {
+            return handleBallWallCollision(ball, wall, deltaTime);
+        }
+
+        if (object1 instanceof Wall wall && object2 instanceof Ball ball) {
+            return handleBallWallCollision(ball, wall, deltaTime);
+        }
+
+        if (object1 instanceof Wall wall1 && object2 instanceof Wall wall2) {
+            return handleWallWallCollision(wall1, wall2, deltaTime);
+        }
+
+        return Optional.empty(); // No more collisions in the remaining time
+    }
+
+    private Optional<CollisionDetail<T1, T2>> handleBallBallCollision(Ball ball1, Ball ball2, double deltaTime) {
+        ball1.advance(deltaTime);
+        ball2.advance(deltaTime);
+        return ball1.willCollideWith(ball2).map(detail -> new CollisionDetail<>(detail.timeToCollision(), detail.collisionX(), detail.collisionY(), object1, object2));
+    }
+
+    private Optional<CollisionDetail<T1, T2>> handleBallWallCollision(Ball ball, Wall wall, double deltaTime) {
+        advanceBallAndWall(ball, wall, deltaTime);
+        double[] contact = new double[2];
+        double   time    = calculateTimeToBallWallCollision(ball, wall, contact);
+        return time < 0 ? Optional.empty() : Optional.of(new CollisionDetail<>(time, contact[0], contact[1], object1, object2));
+    }
+
+    private Optional<CollisionDetail<T1, T2>> handleWallWallCollision(Wall wall1, Wall wall2, double deltaTime) {
+        boolean isEnd1 = isEnd1Colliding(wall1);
+        advanceWalls(wall1, wall2, deltaTime);
+
+        // The end grows at a constant rate until the point, so only something else stopping it on the way changes the collision
+        if (wall1.getEndVelocity(isEnd1) == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new CollisionDetail<>(timeToCollision - deltaTime, collisionX, collisionY, object1, object2));
+    }
+
+    /**
+     * Calculates the time until two balls touch.
+     *
+     * @param ball1
+     *         The first ball.
+     * @param ball2
+     *         The second ball.
+     *
+     * @return The time until the balls touch, or -1 if they do not.
+     */
+    public static double calculateTimeToBallBallCollision(Ball ball1, Ball ball2) {
+        return ball1.willCollideWith(ball2).map(CollisionDetail::timeToCollision).orElse(-1.0);
+    }
+
+    /**
+     * @return The time until the ball touches the wall, or -1 if it does not, with the point of contact written to the array.
+     */
+    private static double calculateTimeToBallWallCollision(Ball ball, Wall wall, double[] contact) {
+        double time = ball.calculateTimeToWall(wall, contact);
+        return time == Double.POSITIVE_INFINITY ? -1 : time;
+    }
+
+    private static void advanceBallAndWall(Ball ball, Wall wall, double deltaTime) {
+        ball.advance(deltaTime);
+        wall.update(deltaTime);
+    }
+
+    private static void advanceWalls(Wall wall1, Wall wall2, double deltaTime) {
+        wall1.update(deltaTime);
+        if (wall2 != wall1) {
+            wall2.update(deltaTime);
+        }
+    }
+
+    /**
+     * Determines which end of the first wall runs into the point of impact: the only one still moving, or else the one that will be nearest to it at the time of the collision. Growing the wall
+     * first could land the end on its target and leave the other end as the only one growing, so this is decided before any update.
+     */
+    private boolean isEnd1Colliding(Wall wall) {
+        boolean moving1 = wall.getEndVelocity(true) != 0;
+        boolean moving2 = wall.getEndVelocity(false) != 0;
+        if (moving1 != moving2) {
+            return moving1;
+        }
+        double at = wall.getOrientation() == Wall.Orientation.HORIZONTAL ? collisionX : collisionY;
+        return Math.abs(wall.getEndPosition(true, timeToCollision) - at) <= Math.abs(wall.getEndPosition(false, timeToCollision) - at);
+    }
+}
@@ -1,8 +1,52 @@
 package com.games.jezzball.games.files2;
 
+/**
+ * A point in the arena. Two coordinates are equal when they lie within a small tolerance of each other, which absorbs the rounding of positions computed in floating point.
+ * <p>
+ * A coordinate can also be built from and read as {@link FixedPoint} numbers, for simulations that keep their state on the Q32.32 grid and need to exchange it exactly.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.1
+ */
 public record Coordinate(double x, double y) {
     private static final double TOLERANCE = 0.0001;
 
+    /**
+     * Creates a coordinate from fixed-point numbers, which is exact within any arena.
+     *
+     * @param x
+     *         The x-coordinate in Q32.32.
+     * @param y
+     *         The y-coordinate in Q32.32.
+     *
+     * @return The coordinate.
+     */
+    public static Coordinate ofFixed(long x, long y) {
+        return new Coordinate(FixedPoint.toDouble(x), FixedPoint.toDouble(y));
+    }
+
+    /**
+     * @return The x-coordinate in Q32.32, rounded to the nearest point of the grid.
+     */
+    public long fixedX() {
+        return FixedPoint.fromDouble(x);
+    }
+
+    /**
+     * @return The y-coordinate in Q32.32, rounded to the nearest point of the grid.
+     */
+    public long fixedY() {
+        return FixedPoint.fromDouble(y);
+    }
+
+    /**
+     * @return Whether both coordinates lie exactly on the Q32.32 grid.
+     */
+    public boolean isOnGrid() {
+        return FixedPoint.isExact(x) && FixedPoint.isExact(y);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
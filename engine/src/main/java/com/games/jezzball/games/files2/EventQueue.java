@@ -0,0 +1,542 @@
+package com.games.jezzball.games.files2;
+
+import java.util.Arrays;
+
+/**
+ * A queue of scheduled collision events ordered by the absolute time they are due, kept in flat primitive arrays.
+ * <p>
+ * Every event lives in a pooled slot that holds its {@link Kind}, the ids of the objects involved, the time it is due, the point of contact and the two counts it was predicted from. The slots are
+ * identified by an integer handed out by {@link #push(Kind, double, double, double, int, int, int, int)}, and the ordering only keeps slot numbers. A slot taken by {@link #poll()} stays readable
+ * until it is handed back with {@link #free(int)}, after which the next push reuses it before the arrays grow.
+ * </p>
+ * <p>
+ * Every pending event is also linked into an intrusive list per ball and per wall it involves, so the events of one object can be found without a scan of the queue. That keys ball-ball and
+ * ball-wall events by their pair of objects: {@link #offer(Kind, double, double, double, int, int, int, int)} moves a pending event of the same pair forward instead of adding a second one, an event
+ * can be {@link #remove(Kind, int, int) removed by its pair}, {@link #removeAll(Kind, int)} drops the events of a kind an object is the first of, such as the stops of the ends of a wall, and
+ * {@link #invalidateBall(int)} and {@link #invalidateWall(int)} drop every event an object takes part in once it has changed. Each of these walks the few events of one object and reorders each
+ * one it touches in the time the subclass takes to reorder a single event.
+ * </p>
+ * <p>
+ * Subclasses only order the pending slots by time. Once the arrays have grown to the largest number of events pending at once, pushing, polling, removing and clearing do not allocate.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.1
+ */
+abstract class EventQueue {
+    /**
+     * Marker for an absent slot, link or object.
+     */
+    static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int INITIAL_OBJECTS  = 16;
+
+    /**
+     * What an event is about, which fixes what its object ids refer to.
+     */
+    enum Kind {
+        /**
+         * A collision of two balls, identified by their slots in the store.
+         */
+        BALL_BALL(true, true),
+        /**
+         * A collision of a ball, identified by its slot, with a wall, identified by its id.
+         */
+        BALL_WALL(true, false),
+        /**
+         * An end of the first wall stopping against the second wall, or at its target when both ids are the same or the second is the wall it was meant to collide into.
+         */
+        WALL_WALL(false, false),
+        /**
+         * The horizon of a ball's prediction running out. It has no second object.
+         */
+        RECHECK(true, false);
+
+        private final boolean firstIsBall;
+        private final boolean secondIsBall;
+
+        Kind(boolean firstIsBall, boolean secondIsBall) {
+            this.firstIsBall  = firstIsBall;
+            this.secondIsBall = secondIsBall;
+        }
+
+        /**
+         * @return True if the first object of an event of this kind is a ball, false if it is a wall.
+         */
+        boolean firstIsBall() {
+            return firstIsBall;
+        }
+
+        /**
+         * @return True if the second object of an event of this kind is a ball, false if it is a wall.
+         */
+        boolean secondIsBall() {
+            return secondIsBall;
+        }
+    }
+
+    // Slot columns
+    private Kind[]   kinds;
+    private double[] times;
+    private double[] pointX;
+    private double[] pointY;
+    private int[]    first;
+    private int[]    second;
+    private int[]    count1;
+    private int[]    count2;
+    private int      slotTop;      // Slots below this index have been handed out at least once since the last clear
+    private int[]    freeSlots;
+    private int      freeCount;
+    private int      size;
+
+    // Object lists. A link is a slot shifted left by one, with the low bit telling whether it is the slot's first or second object
+    private int[] linkNext;
+    private int[] linkPrev;
+    private int[] ballHeads = new int[INITIAL_OBJECTS];
+    private int[] wallHeads = new int[INITIAL_OBJECTS];
+
+    /**
+     * Constructs an empty queue.
+     */
+    EventQueue() {
+        kinds     = new Kind[INITIAL_CAPACITY];
+        times     = new double[INITIAL_CAPACITY];
+        pointX    = new double[INITIAL_CAPACITY];
+        pointY    = new double[INITIAL_CAPACITY];
+        first     = new int[INITIAL_CAPACITY];
+        second    = new int[INITIAL_CAPACITY];
+        count1    = new int[INITIAL_CAPACITY];
+        count2    = new int[INITIAL_CAPACITY];
+        freeSlots = new int[INITIAL_CAPACITY];
+        linkNext  = new int[2 * INITIAL_CAPACITY];
+        linkPrev  = new int[2 * INITIAL_CAPACITY];
+        Arrays.fill(ballHeads, NONE);
+        Arrays.fill(wallHeads, NONE);
+    }
+
+    /**
+     * Schedules an event.
+     *
+     * @param kind
+     *         What the event is about.
+     * @param time
+     *         The absolute time the event is due.
+     * @param x
+     *         The x-coordinate of the point of contact.
+     * @param y
+     *         The y-coordinate of the point of contact.
+     * @param firstId
+     *         The id of the first object.
+     * @param secondId
+     *         The id of the second object, or {@link #NONE} for a recheck.
+     * @param firstCount
+     *         The collision count of the first object when the event was predicted.
+     * @param secondCount
+     *         The collision count of the second object when the event was predicted.
+     *
+     * @return The slot of the event.
+     */
+    int push(Kind kind, double time, double x, double y, int firstId, int secondId, int firstCount, int secondCount) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotTop == kinds.length) {
+                growSlots();
+            }
+            slot = slotTop++;
+        }
+        kinds[slot]  = kind;
+        times[slot]  = time;
+        pointX[slot] = x;
+        pointY[slot] = y;
+        first[slot]  = firstId;
+        second[slot] = secondId;
+        count1[slot] = firstCount;
+        count2[slot] = secondCount;
+
+        link(slot, 0, kind.firstIsBall(), firstId);
+        if (secondId != NONE) {
+            link(slot, 1, kind.secondIsBall(), secondId);
+        }
+        size++;
+        enqueue(slot);
+        return slot;
+    }
+
+    /**
+     * Schedules an event unless one of the same kind is already pending for the same pair of objects, in which case that one is kept and moved forward to the given time and point if they are
+     * earlier. Two balls make the same pair in either order.
+     * <p>
+     * Meant for events of which only the earliest per pair matters, as long as every event of an object is {@link #invalidateBall(int) invalidated} once it has changed.
+     * </p>
+     *
+     * @return The slot of the event that is pending for the pair.
+     *
+     * @see #push(Kind, double, double, double, int, int, int, int)
+     */
+    int offer(Kind kind, double time, double x, double y, int firstId, int secondId, int firstCount, int secondCount) {
+        int slot = find(kind, firstId, secondId);
+        if (slot == NONE) {
+            return push(kind, time, x, y, firstId, secondId, firstCount, secondCount);
+        }
+        if (time < times[slot]) {
+            pointX[slot] = x;
+            pointY[slot] = y;
+            decreaseKey(slot, time);
+        }
+        return slot;
+    }
+
+    /**
+     * Moves a pending event forward to an earlier time.
+     *
+     * @param slot
+     *         The slot of the pending event.
+     * @param time
+     *         The new time, not after the current one.
+     *
+     * @throws IllegalArgumentException
+     *         if the new time is after the current one.
+     */
+    void decreaseKey(int slot, double time) {
+        if (time > times[slot]) {
+            throw new IllegalArgumentException("New time should not be after the current time");
+        }
+        times[slot] = time;
+        decreased(slot);
+    }
+
+    /**
+     * Finds the pending event of a kind for a pair of objects. Two balls make the same pair in either order.
+     *
+     * @return The slot of the event, or {@link #NONE} if none is pending.
+     */
+    int find(Kind kind, int firstId, int secondId) {
+        for (int link = head(kind.firstIsBall(), firstId); link != NONE; link = linkNext[link]) {
+            int slot = link >>> 1;
+            if (kinds[slot] != kind) {
+                continue;
+            }
+            boolean isFirst = (link & 1) == 0;
+            int     other   = isFirst ? second[slot] : first[slot];
+            if (other == secondId && (isFirst || kind == Kind.BALL_BALL)) {
+                return slot;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Removes the pending event of a kind for a pair of objects, if there is one.
+     *
+     * @return True if an event was removed, otherwise false.
+     */
+    boolean remove(Kind kind, int firstId, int secondId) {
+        int slot = find(kind, firstId, secondId);
+        if (slot == NONE) {
+            return false;
+        }
+        discard(slot);
+        return true;
+    }
+
+    /**
+     * Removes every pending event of a kind whose first object is the given one, so that an object predicted again replaces the events it had rather than adding to them.
+     *
+     * @param kind
+     *         The kind of the events to remove.
+     * @param firstId
+     *         The id of the first object.
+     *
+     * @return The number of events removed.
+     */
+    int removeAll(Kind kind, int firstId) {
+        int removed = 0;
+        int link    = head(kind.firstIsBall(), firstId);
+        while (link != NONE) {
+            int slot = link >>> 1;
+            int next = linkNext[link];
+            if ((link & 1) == 0 && kinds[slot] == kind) {
+                while (next != NONE && next >>> 1 == slot) {
+                    next = linkNext[next];  // The other link of the slot, if its second object is the same, goes with it
+                }
+                discard(slot);
+                removed++;
+            }
+            link = next;
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every pending event a ball takes part in.
+     *
+     * @param id
+     *         The slot of the ball in the store.
+     *
+     * @return The number of events removed.
+     */
+    int invalidateBall(int id) {
+        return invalidate(ballHeads, id);
+    }
+
+    /**
+     * Removes every pending event a wall takes part in.
+     *
+     * @param id
+     *         The id of the wall.
+     *
+     * @return The number of events removed.
+     */
+    int invalidateWall(int id) {
+        return invalidate(wallHeads, id);
+    }
+
+    /**
+     * @return True if no event is pending, otherwise false.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The number of pending events.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The time the earliest pending event is due.
+     *
+     * @throws IllegalStateException
+     *         if no event is pending.
+     */
+    double peekTime() {
+        if (size == 0) {
+            throw new IllegalStateException("No event is pending");
+        }
+        return times[earliest()];
+    }
+
+    /**
+     * Takes the earliest pending event off the queue. Its slot stays readable until it is {@link #free(int) freed}, but it no longer counts as pending for its pair or its objects.
+     *
+     * @return The slot of the event.
+     *
+     * @throws IllegalStateException
+     *         if no event is pending.
+     */
+    int poll() {
+        if (size == 0) {
+            throw new IllegalStateException("No event is pending");
+        }
+        int slot = earliest();
+        dequeue(slot);
+        unlink(slot);
+        size--;
+        return slot;
+    }
+
+    /**
+     * Hands the slot of a polled event back for reuse.
+     *
+     * @param slot
+     *         The slot returned by {@link #poll()}.
+     */
+    void free(int slot) {
+        freeSlots[freeCount++] = slot;
+    }
+
+    /**
+     * Drops every pending event and every slot handed out, without releasing the backing arrays.
+     */
+    void clear() {
+        size      = 0;
+        slotTop   = 0;
+        freeCount = 0;
+        Arrays.fill(ballHeads, NONE);
+        Arrays.fill(wallHeads, NONE);
+        reset();
+    }
+
+    /**
+     * @return What the event in the slot is about.
+     */
+    Kind getKind(int slot) {
+        return kinds[slot];
+    }
+
+    /**
+     * @return The absolute time the event in the slot is due.
+     */
+    double getTime(int slot) {
+        return times[slot];
+    }
+
+    /**
+     * @return The x-coordinate of the point of contact of the event in the slot.
+     */
+    double getX(int slot) {
+        return pointX[slot];
+    }
+
+    /**
+     * @return The y-coordinate of the point of contact of the event in the slot.
+     */
+    double getY(int slot) {
+        return pointY[slot];
+    }
+
+    /**
+     * @return The id of the first object of the event in the slot.
+     */
+    int getFirst(int slot) {
+        return first[slot];
+    }
+
+    /**
+     * @return The id of the second object of the event in the slot, or {@link #NONE} for a recheck.
+     */
+    int getSecond(int slot) {
+        return second[slot];
+    }
+
+    /**
+     * @return The collision count of the first object when the event in the slot was predicted.
+     */
+    int getCount1(int slot) {
+        return count1[slot];
+    }
+
+    /**
+     * @return The collision count of the second object when the event in the slot was predicted.
+     */
+    int getCount2(int slot) {
+        return count2[slot];
+    }
+
+    /**
+     * @return The number of slots the columns currently have room for, which bounds every slot handed to the subclass.
+     */
+    int capacity() {
+        return kinds.length;
+    }
+
+    /**
+     * Adds a slot that was just pushed to the ordering.
+     */
+    abstract void enqueue(int slot);
+
+    /**
+     * Removes a pending slot from the ordering.
+     */
+    abstract void dequeue(int slot);
+
+    /**
+     * @return The slot of the earliest pending event. Only called while at least one event is pending.
+     */
+    abstract int earliest();
+
+    /**
+     * Restores the ordering after the time of a pending slot decreased.
+     */
+    abstract void decreased(int slot);
+
+    /**
+     * Drops every slot from the ordering.
+     */
+    abstract void reset();
+
+    /**
+     * Grows the subclass's own slot columns to the new {@link #capacity()}.
+     */
+    abstract void grow(int capacity);
+
+    private void discard(int slot) {
+        dequeue(slot);
+        unlink(slot);
+        size--;
+        free(slot);
+    }
+
+    private int invalidate(int[] heads, int id) {
+        if (id >= heads.length) {
+            return 0;
+        }
+        int removed = 0;
+        while (heads[id] != NONE) {
+            discard(heads[id] >>> 1);  // Unlinks the slot from this list, along with the list of its other object
+            removed++;
+        }
+        return removed;
+    }
+
+    private int head(boolean isBall, int id) {
+        int[] heads = isBall ? ballHeads : wallHeads;
+        return id < heads.length ? heads[id] : NONE;
+    }
+
+    private void link(int slot, int side, boolean isBall, int id) {
+        if (isBall && id >= ballHeads.length) {
+            ballHeads = growHeads(ballHeads, id);
+        } else if (!isBall && id >= wallHeads.length) {
+            wallHeads = growHeads(wallHeads, id);
+        }
+        int[] heads = isBall ? ballHeads : wallHeads;
+        int   link  = slot << 1 | side;
+        int   next  = heads[id];
+        linkNext[link] = next;
+        linkPrev[link] = NONE;
+        if (next != NONE) {
+            linkPrev[next] = link;
+        }
+        heads[id] = link;
+    }
+
+    private void unlink(int slot) {
+        Kind kind = kinds[slot];
+        unlink(slot << 1, kind.firstIsBall() ? ballHeads : wallHeads, first[slot]);
+        if (second[slot] != NONE) {
+            unlink(slot << 1 | 1, kind.secondIsBall() ? ballHeads : wallHeads, second[slot]);
+        }
+    }
+
+    private void unlink(int link, int[] heads, int id) {
+        int next = linkNext[link];
+        int prev = linkPrev[link];
+        if (prev != NONE) {
+            linkNext[prev] = next;
+        } else {
+            heads[id] = next;
+        }
+        if (next != NONE) {
+            linkPrev[next] = prev;
+        }
+    }
+
+    private static int[] growHeads(int[] heads, int id) {
+        int   length = heads.length;
+        int[] grown  = Arrays.copyOf(heads, Math.max(id + 1, length * 2));
+        Arrays.fill(grown, length, grown.length, NONE);
+        return grown;
+    }
+
+    private void growSlots() {
+        int capacity = kinds.length * 2;
+        kinds     = Arrays.copyOf(kinds, capacity);
+        times     = Arrays.copyOf(times, capacity);
+        pointX    = Arrays.copyOf(pointX, capacity);
+        pointY    = Arrays.copyOf(pointY, capacity);
+        first     = Arrays.copyOf(first, capacity);
+        second    = Arrays.copyOf(second, capacity);
+        count1    = Arrays.copyOf(count1, capacity);
+        count2    = Arrays.copyOf(count2, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+        linkNext  = Arrays.copyOf(linkNext, 2 * capacity);
+        linkPrev  = Arrays.copyOf(linkPrev, 2 * capacity);
+        grow(capacity);
+    }
+}
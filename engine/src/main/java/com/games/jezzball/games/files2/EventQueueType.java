@@ -0,0 +1,31 @@
+package com.games.jezzball.games.files2;
+
+/**
+ * Selects the {@link EventQueue} implementation a {@link Collision} schedules its events in.
+ * <p>
+ * {@link #INDEXED_HEAP} takes O(log n) per event whatever the event times look like, and suits most arenas. {@link #CALENDAR} takes constant time per event on average when the pending events are
+ * spread evenly over the near future, as they are in a crowded arena predicted over a short horizon, but slows down when a few events lie far ahead of the rest.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+public enum EventQueueType {
+    INDEXED_HEAP {
+        @Override
+        EventQueue create() {
+            return new IndexedHeapEventQueue();
+        }
+    },
+    CALENDAR {
+        @Override
+        EventQueue create() {
+            return new CalendarEventQueue();
+        }
+    };
+
+    /**
+     * @return A new, empty event queue.
+     */
+    abstract EventQueue create();
+}
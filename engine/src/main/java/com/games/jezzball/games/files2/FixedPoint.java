@@ -0,0 +1,198 @@
+package com.games.jezzball.games.files2;
+
+/**
+ * Arithmetic on Q32.32 fixed-point numbers: signed {@code long}s that count units of 2<sup>-32</sup>, giving 31 bits before the binary point and 32 after it.
+ * <p>
+ * Every operation is carried out on integers alone, so its result is the same bit for bit on every JVM and every processor, and can be reproduced by any peer that implements the same integer
+ * operations. Products and quotients are truncated towards negative infinity and zero respectively, and throw an {@link ArithmeticException} rather than wrap around when the result does not
+ * fit.
+ * </p>
+ * <p>
+ * A {@code double} holds every Q32.32 number below 2<sup>21</sup> in magnitude exactly, so values on the grid can be kept in the existing {@code double} columns and converted back and forth without
+ * loss. {@link #fromDouble(double)} rounds any other value to the nearest point of the grid.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+public final class FixedPoint {
+    /**
+     * The number of bits after the binary point.
+     */
+    public static final int FRACTION_BITS = 32;
+
+    /**
+     * The fixed-point representation of 1.
+     */
+    public static final long ONE = 1L << FRACTION_BITS;
+
+    private static final double SCALE     = ONE;
+    private static final double MAX_VALUE = (double) Long.MAX_VALUE / SCALE;  // Exclusive bound on the magnitude of a convertible double
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Converts a double to the nearest fixed-point number, rounding halfway cases up.
+     *
+     * @param value
+     *         The value to convert.
+     *
+     * @return The fixed-point number.
+     *
+     * @throws ArithmeticException
+     *         If the value is not finite or too large for the format.
+     */
+    public static long fromDouble(double value) {
+        double scaled = value * SCALE;  // Exact, the scale is a power of two
+        if (!(Math.abs(scaled) < Long.MAX_VALUE)) {
+            throw new ArithmeticException("Value outside of the fixed-point range: " + value);
+        }
+        return (long) Math.floor(scaled + 0.5);
+    }
+
+    /**
+     * Converts a fixed-point number to a double, which is exact below 2<sup>21</sup> in magnitude.
+     *
+     * @param value
+     *         The fixed-point number.
+     *
+     * @return The double.
+     */
+    public static double toDouble(long value) {
+        return value / SCALE;
+    }
+
+    /**
+     * Rounds a double to the nearest value on the fixed-point grid.
+     *
+     * @param value
+     *         The value to round.
+     *
+     * @return The rounded value.
+     *
+     * @throws ArithmeticException
+     *         If the value is not finite or too large for the format.
+     */
+    public static double round(double value) {
+        return toDouble(fromDouble(value));
+    }
+
+    /**
+     * Rounds a double up to the closest value on the fixed-point grid that is not less than it.
+     *
+     * @param value
+     *         The value to round.
+     *
+     * @return The rounded value.
+     *
+     * @throws ArithmeticException
+     *         If the value is not finite or too large for the format.
+     */
+    public static double ceil(double value) {
+        double scaled = value * SCALE;
+        if (!(Math.abs(scaled) < Long.MAX_VALUE)) {
+            throw new ArithmeticException("Value outside of the fixed-point range: " + value);
+        }
+        return toDouble((long) Math.ceil(scaled));
+    }
+
+    /**
+     * Tells whether a double lies exactly on the fixed-point grid, so that it converts without rounding.
+     *
+     * @param value
+     *         The value to test.
+     *
+     * @return Whether the value is a fixed-point number.
+     */
+    public static boolean isExact(double value) {
+        return Math.abs(value) < MAX_VALUE && fromDouble(value) / SCALE == value;
+    }
+
+    /**
+     * Multiplies two fixed-point numbers, truncating the exact product towards negative infinity.
+     *
+     * @throws ArithmeticException
+     *         If the product does not fit the format.
+     */
+    public static long mul(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        if (high != (int) high) {
+            throw new ArithmeticException("Fixed-point overflow: " + toDouble(a) + " * " + toDouble(b));
+        }
+        return (high << FRACTION_BITS) | ((a * b) >>> FRACTION_BITS);
+    }
+
+    /**
+     * Divides two fixed-point numbers, truncating the exact quotient towards zero. The quotient is found by long division, one bit after the binary point at a time.
+     *
+     * @throws ArithmeticException
+     *         If the divisor is zero or the quotient does not fit the format.
+     */
+    public static long div(long a, long b) {
+        if (b == 0) {
+            throw new ArithmeticException("Fixed-point division by zero");
+        }
+        // Work on the magnitudes as unsigned numbers, which also covers Long.MIN_VALUE
+        long dividend = a < 0 ? -a : a;
+        long divisor  = b < 0 ? -b : b;
+        long quotient = Long.divideUnsigned(dividend, divisor);
+        long rest     = Long.remainderUnsigned(dividend, divisor);
+        if (Long.compareUnsigned(quotient, 1L << (63 - FRACTION_BITS)) >= 0) {
+            throw new ArithmeticException("Fixed-point overflow: " + toDouble(a) + " / " + toDouble(b));
+        }
+        for (int bit = 0; bit < FRACTION_BITS; bit++) {
+            // The rest stays below the divisor, so doubling it fits 64 unsigned bits
+            rest <<= 1;
+            quotient <<= 1;
+            if (Long.compareUnsigned(rest, divisor) >= 0) {
+                rest -= divisor;
+                quotient |= 1;
+            }
+        }
+        return (a < 0) != (b < 0) ? -quotient : quotient;
+    }
+
+    /**
+     * Takes the square root of a fixed-point number, truncated towards zero.
+     *
+     * @throws ArithmeticException
+     *         If the number is negative.
+     */
+    public static long sqrt(long a) {
+        if (a < 0) {
+            throw new ArithmeticException("Square root of a negative fixed-point number: " + toDouble(a));
+        }
+        // The root of a * 2^32, taken as a 128-bit integer, is the root of the value in units of 2^-32
+        return sqrt(a >>> (64 - FRACTION_BITS), a << FRACTION_BITS);
+    }
+
+    /**
+     * Takes the integer square root of the unsigned 128-bit number {@code high * 2^64 + low}, truncated towards zero, digit by digit in base four.
+     * <p>
+     * The number must be below 2<sup>122</sup>, so that the root is below 2<sup>61</sup> and the remainder never needs more than 64 bits.
+     * </p>
+     *
+     * @param high
+     *         The upper 64 bits.
+     * @param low
+     *         The lower 64 bits, taken as unsigned.
+     *
+     * @return The root.
+     */
+    static long sqrt(long high, long low) {
+        long root = 0;
+        long rest = 0;
+        for (int digit = 63; digit >= 0; digit--) {
+            long next  = digit >= 32 ? high >>> (2 * digit - 64) : low >>> (2 * digit);
+            long trial = (root << 2) | 1;
+            rest  = (rest << 2) | (next & 3);
+            root <<= 1;
+            if (Long.compareUnsigned(rest, trial) >= 0) {
+                rest -= trial;
+                root |= 1;
+            }
+        }
+        return root;
+    }
+}
@@ -0,0 +1,96 @@
+package com.games.jezzball.games.files2;
+
+/**
+ * The deterministic {@link NarrowPhase}: solves every pair with {@link FixedPoint} integer arithmetic only, so its times are the same bit for bit on every JVM and processor.
+ * <p>
+ * The columns are read as Q32.32 numbers, which is exact for state kept on the fixed-point grid. With {@code dp} and {@code dv} the relative position and velocity, {@code b = dp · dv},
+ * {@code a = dv · dv} and {@code c = dp · dp - (r1 + r2)²} are each truncated to Q32.32, and the discriminant {@code b² - a c} is formed from them exactly in 128 bits, whose integer root is again a
+ * Q32.32 number. The contact time is then taken in the stable form {@code c / (-b + √(b² - a c))}, which also covers {@code a} truncated to zero, and truncated, so that it never lies after the
+ * contact. The rules on overlapping, receding and slowly approaching pairs are the same as for the other implementations, but the times are only as close to theirs as Q32.32 allows.
+ * </p>
+ * <p>
+ * Relative positions, relative velocities and reaches must stay below 2<sup>14</sup> in magnitude, far beyond any arena, which keeps every square and the discriminant within their bits; a pair
+ * outside that range throws an {@link ArithmeticException} rather than get a wrong time.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+final class FixedPointNarrowPhase implements NarrowPhase {
+    private static final int  RANGE_BITS   = 14 + FixedPoint.FRACTION_BITS;
+    private static final long TOLERANCE    = FixedPoint.fromDouble(2 * Ball.CONTACT_TOLERANCE);
+    private static final long MIN_APPROACH = FixedPoint.fromDouble(Ball.MIN_APPROACH_SPEED);
+    private static final long MAX_TIME     = 1L << (63 - FixedPoint.FRACTION_BITS);  // Integer part a quotient must stay below
+
+    @Override
+    public int timesOfImpact(double[] x, double[] y, double[] vx, double[] vy, double[] radius, int index, int[] candidates, int count, double[] times) {
+        long px = FixedPoint.fromDouble(x[index]), py = FixedPoint.fromDouble(y[index]), pvx = FixedPoint.fromDouble(vx[index]), pvy = FixedPoint.fromDouble(vy[index]);
+        long pr = FixedPoint.fromDouble(radius[index]);
+        int  hits = 0;
+        for (int k = 0; k < count; k++) {
+            int    other = candidates[k];
+            double t     = timeOfImpact(FixedPoint.fromDouble(x[other]) - px, FixedPoint.fromDouble(y[other]) - py, FixedPoint.fromDouble(vx[other]) - pvx,
+                                        FixedPoint.fromDouble(vy[other]) - pvy, pr + FixedPoint.fromDouble(radius[other]));
+            times[k] = t;
+            if (t != Double.POSITIVE_INFINITY) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Override
+    public int timesOfImpact(double[] x, double[] y, double[] vx, double[] vy, double[] radius, int[] first, int[] second, int count, double[] times) {
+        int hits = 0;
+        for (int k = 0; k < count; k++) {
+            int    i = first[k];
+            int    j = second[k];
+            double t = timeOfImpact(FixedPoint.fromDouble(x[j]) - FixedPoint.fromDouble(x[i]), FixedPoint.fromDouble(y[j]) - FixedPoint.fromDouble(y[i]),
+                                    FixedPoint.fromDouble(vx[j]) - FixedPoint.fromDouble(vx[i]), FixedPoint.fromDouble(vy[j]) - FixedPoint.fromDouble(vy[i]),
+                                    FixedPoint.fromDouble(radius[i]) + FixedPoint.fromDouble(radius[j]));
+            times[k] = t;
+            if (t != Double.POSITIVE_INFINITY) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Solves a single pair from its relative position, relative velocity and the sum of the radii, all in Q32.32.
+     */
+    private static double timeOfImpact(long dx, long dy, long dvx, long dvy, long reach) {
+        if (!inRange(dx) || !inRange(dy) || !inRange(dvx) || !inRange(dvy) || !inRange(reach)) {
+            throw new ArithmeticException("Pair outside of the fixed-point range");
+        }
+        long b = FixedPoint.mul(dx, dvx) + FixedPoint.mul(dy, dvy);
+        long c = FixedPoint.mul(dx, dx) + FixedPoint.mul(dy, dy) - FixedPoint.mul(reach, reach);
+        if (c < -FixedPoint.mul(TOLERANCE, reach) || b >= -FixedPoint.mul(MIN_APPROACH, reach)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (c <= 0) {
+            return 0;  // Touching within the contact tolerance and approaching
+        }
+        long a = FixedPoint.mul(dvx, dvx) + FixedPoint.mul(dvy, dvy);
+
+        // b² - a c in units of 2^-64, as a signed 128-bit number
+        long squareHigh  = Math.multiplyHigh(b, b);
+        long squareLow   = b * b;
+        long productHigh = Math.multiplyHigh(a, c);
+        long productLow  = a * c;
+        long low         = squareLow - productLow;
+        long high        = squareHigh - productHigh - (Long.compareUnsigned(squareLow, productLow) < 0 ? 1 : 0);
+        if (high < 0) {
+            return Double.POSITIVE_INFINITY;  // The balls pass each other
+        }
+        long denominator = FixedPoint.sqrt(high, low) - b;
+        if (c / denominator >= MAX_TIME) {
+            return Double.POSITIVE_INFINITY;  // Too far ahead to be represented
+        }
+        return FixedPoint.toDouble(FixedPoint.div(c, denominator));
+    }
+
+    private static boolean inRange(long value) {
+        return value >> RANGE_BITS == value >> 63;
+    }
+}
@@ -0,0 +1,70 @@
+package com.games.jezzball.games.files2;
+
+/**
+ * Solves ball-ball times of impact in batches directly over the columns of a {@link BallStore}.
+ * <p>
+ * A contact time is the earlier root of {@code |dp + dv t| = r1 + r2}, or zero for pairs that overlap by no more than {@link Ball#CONTACT_TOLERANCE}. Pairs that overlap further, never meet, met
+ * in the past or approach each other slower than {@link Ball#MIN_APPROACH_SPEED} get {@link Double#POSITIVE_INFINITY} instead, matching {@link Ball#willCollideWith(Ball)}. Every implementation
+ * evaluates the same operations in the same order, so they return bit-identical times; the {@link FixedPointNarrowPhase} follows the same rules in integer arithmetic instead and is only as
+ * close to them as its format allows.
+ * </p>
+ * <p>
+ * {@link #INSTANCE} is the {@link VectorNarrowPhase} when the {@code jdk.incubator.vector} module has been added to the boot layer, for example with {@code --add-modules jdk.incubator.vector}, and
+ * the {@link ScalarNarrowPhase} otherwise. Setting the system property {@code jezzball.narrowPhase=scalar} forces the scalar one, and {@code jezzball.narrowPhase=fixed} the fixed-point one.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.2
+ */
+interface NarrowPhase {
+    NarrowPhase INSTANCE = select();
+
+    /**
+     * Solves one ball against a batch of candidates.
+     *
+     * @param index
+     *         The slot of the ball to test.
+     * @param candidates
+     *         The slots of the balls to test it against.
+     * @param count
+     *         The number of candidates.
+     * @param times
+     *         Receives the contact time of each candidate at the candidate's position.
+     *
+     * @return The number of candidates with a finite contact time.
+     */
+    int timesOfImpact(double[] x, double[] y, double[] vx, double[] vy, double[] radius, int index, int[] candidates, int count, double[] times);
+
+    /**
+     * Solves a batch of independent pairs.
+     *
+     * @param first
+     *         The slots of the first ball of every pair.
+     * @param second
+     *         The slots of the second ball of every pair.
+     * @param count
+     *         The number of pairs.
+     * @param times
+     *         Receives the contact time of each pair at the pair's position.
+     *
+     * @return The number of pairs with a finite contact time.
+     */
+    int timesOfImpact(double[] x, double[] y, double[] vx, double[] vy, double[] radius, int[] first, int[] second, int count, double[] times);
+
+    private static NarrowPhase select() {
+        String requested = System.getProperty("jezzball.narrowPhase");
+        if ("fixed".equals(requested)) {
+            return new FixedPointNarrowPhase();
+        }
+        if (!"scalar".equals(requested) && ModuleLayer.boot()
+                                                      .findModule("jdk.incubator.vector")
+                                                      .isPresent()) {
+            try {
+                return new VectorNarrowPhase();
+            } catch (LinkageError e) {
+                // The module is there but its classes cannot be linked on this runtime, fall through to the scalar loop
+            }
+        }
+        return new ScalarNarrowPhase();
+    }
+}
@@ -0,0 +1,601 @@
+package com.games.jezzball.games.files2;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * An array-backed QuadTree that stores its nodes and object slots in flat primitive arrays.
+ * <p>
+ * Objects are identified by an integer slot handed out by {@link #insert(double, double, double, double)}. Every node keeps an intrusive doubly linked list of the slots it owns, so removing or
+ * moving an object is a constant amount of work plus a walk along the (at most {@code maxLevels} deep) parent chain. Child nodes are always allocated as a block of four consecutive node indices in
+ * NW, NE, SW, SE order, and blocks freed by collapsing a subtree are recycled before the arrays grow.
+ * </p>
+ * <p>
+ * Once the arrays have grown to fit the working set, inserting, updating, removing, clearing and querying do not allocate.
+ * </p>
+ * <p>
+ * The node structure can be walked with {@link #forEachNode(IntConsumer)}, {@link #getFirstSlot(int)} and {@link #getNextSlot(int)}, so that callers can process the nodes independently, for example
+ * in parallel. Walking and querying only read the arrays and are safe from several threads as long as nothing modifies the tree meanwhile.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.2
+ */
+public class PackedQuadTree {
+    /**
+     * Marker for an absent node or slot link.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * The node at the root of the tree, which covers the whole boundary.
+     */
+    static final int ROOT = 0;
+
+    private static final int INITIAL_NODES    = 1 + 4 * 4;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maxObjects;
+    private final int maxLevels;
+
+    // Node columns
+    private double[] nodeMinX;
+    private double[] nodeMinY;
+    private double[] nodeMaxX;
+    private double[] nodeMaxY;
+    private int[]    nodeLevel;
+    private int[]    nodeParent;
+    private int[]    nodeFirstChild;  // Index of the NW child, the other three follow it, or NONE for a leaf
+    private int[]    nodeHead;        // First slot owned by the node, or the next free block when the block is free
+    private int[]    nodeCount;       // Number of slots owned by the node itself
+    private int      nodeTop;
+    private int      freeBlock = NONE;
+
+    // Slot columns
+    private double[] slotMinX;
+    private double[] slotMinY;
+    private double[] slotMaxX;
+    private double[] slotMaxY;
+    private int[]    slotNode;        // Owning node, or NONE when the slot is free
+    private int[]    slotNext;        // Next slot in the owning node, or the next free slot when the slot is free
+    private int[]    slotPrev;
+    private int      slotTop;
+    private int      freeSlot = NONE;
+    private int      size;
+
+    /**
+     * Constructs an empty tree covering the given boundary.
+     *
+     * @param minX
+     *         The minimum x-coordinate of the root boundary.
+     * @param minY
+     *         The minimum y-coordinate of the root boundary.
+     * @param maxX
+     *         The maximum x-coordinate of the root boundary.
+     * @param maxY
+     *         The maximum y-coordinate of the root boundary.
+     * @param level
+     *         The level of the root node.
+     * @param maxObjects
+     *         The number of objects a leaf holds before it is split.
+     * @param maxLevels
+     *         The deepest level a node may be split to.
+     */
+    public PackedQuadTree(double minX, double minY, double maxX, double maxY, int level, int maxObjects, int maxLevels) {
+        if (minX > maxX || minY > maxY) {
+            throw new IllegalArgumentException("Minimum coordinates should be less than or equal to maximum coordinates");
+        }
+        this.maxObjects = maxObjects;
+        this.maxLevels  = maxLevels;
+
+        nodeMinX       = new double[INITIAL_NODES];
+        nodeMinY       = new double[INITIAL_NODES];
+        nodeMaxX       = new double[INITIAL_NODES];
+        nodeMaxY       = new double[INITIAL_NODES];
+        nodeLevel      = new int[INITIAL_NODES];
+        nodeParent     = new int[INITIAL_NODES];
+        nodeFirstChild = new int[INITIAL_NODES];
+        nodeHead       = new int[INITIAL_NODES];
+        nodeCount      = new int[INITIAL_NODES];
+
+        slotMinX = new double[INITIAL_CAPACITY];
+        slotMinY = new double[INITIAL_CAPACITY];
+        slotMaxX = new double[INITIAL_CAPACITY];
+        slotMaxY = new double[INITIAL_CAPACITY];
+        slotNode = new int[INITIAL_CAPACITY];
+        slotNext = new int[INITIAL_CAPACITY];
+        slotPrev = new int[INITIAL_CAPACITY];
+
+        nodeMinX[ROOT]  = minX;
+        nodeMinY[ROOT]  = minY;
+        nodeMaxX[ROOT]  = maxX;
+        nodeMaxY[ROOT]  = maxY;
+        nodeLevel[ROOT] = level;
+        resetRoot();
+    }
+
+    /**
+     * Removes every object and collapses the tree back to its root without releasing the backing arrays.
+     */
+    public void clear() {
+        resetRoot();
+        slotTop  = 0;
+        freeSlot = NONE;
+        size     = 0;
+    }
+
+    /**
+     * Removes every object and moves the root boundary, for trees that are rebuilt around a changing set of objects.
+     *
+     * @param minX
+     *         The new minimum x-coordinate of the root boundary.
+     * @param minY
+     *         The new minimum y-coordinate of the root boundary.
+     * @param maxX
+     *         The new maximum x-coordinate of the root boundary.
+     * @param maxY
+     *         The new maximum y-coordinate of the root boundary.
+     */
+    public void clear(double minX, double minY, double maxX, double maxY) {
+        if (minX > maxX || minY > maxY) {
+            throw new IllegalArgumentException("Minimum coordinates should be less than or equal to maximum coordinates");
+        }
+        clear();
+        nodeMinX[ROOT] = minX;
+        nodeMinY[ROOT] = minY;
+        nodeMaxX[ROOT] = maxX;
+        nodeMaxY[ROOT] = maxY;
+    }
+
+    private void resetRoot() {
+        nodeParent[ROOT]     = NONE;
+        nodeFirstChild[ROOT] = NONE;
+        nodeHead[ROOT]       = NONE;
+        nodeCount[ROOT]      = 0;
+        nodeTop              = 1;
+        freeBlock            = NONE;
+    }
+
+    /**
+     * Inserts an object with the given bounding box.
+     *
+     * @param minX
+     *         The minimum x-coordinate of the object's bounding box.
+     * @param minY
+     *         The minimum y-coordinate of the object's bounding box.
+     * @param maxX
+     *         The maximum x-coordinate of the object's bounding box.
+     * @param maxY
+     *         The maximum y-coordinate of the object's bounding box.
+     *
+     * @return The slot identifying the object until it is removed.
+     */
+    public int insert(double minX, double minY, double maxX, double maxY) {
+        int slot = allocateSlot();
+        setBounds(slot, minX, minY, maxX, maxY);
+        place(slot, ROOT);
+        size++;
+        return slot;
+    }
+
+    /**
+     * Moves an object to a new bounding box.
+     * <p>
+     * When the object still belongs to the node that owns it nothing but its bounds change. Otherwise it is unlinked and re-inserted from the closest ancestor that contains it.
+     * </p>
+     *
+     * @param slot
+     *         The slot returned when the object was inserted.
+     * @param minX
+     *         The new minimum x-coordinate.
+     * @param minY
+     *         The new minimum y-coordinate.
+     * @param maxX
+     *         The new maximum x-coordinate.
+     * @param maxY
+     *         The new maximum y-coordinate.
+     */
+    public void update(int slot, double minX, double minY, double maxX, double maxY) {
+        checkSlot(slot);
+        setBounds(slot, minX, minY, maxX, maxY);
+
+        int node = slotNode[slot];
+        if (belongsTo(slot, node) && (nodeFirstChild[node] == NONE || quadrantOf(node, slot) == NONE)) {
+            return;
+        }
+
+        int ancestor = node;
+        while (!belongsTo(slot, ancestor)) {
+            ancestor = nodeParent[ancestor];
+        }
+        unlink(slot);
+        place(slot, ancestor);
+        collapse(node);
+    }
+
+    /**
+     * Removes an object from the tree and releases its slot.
+     *
+     * @param slot
+     *         The slot returned when the object was inserted.
+     */
+    public void remove(int slot) {
+        checkSlot(slot);
+        int node = slotNode[slot];
+        unlink(slot);
+        slotNode[slot] = NONE;
+        slotNext[slot] = freeSlot;
+        freeSlot       = slot;
+        size--;
+        collapse(node);
+    }
+
+    /**
+     * Checks whether the given slot currently holds an object.
+     *
+     * @param slot
+     *         The slot to check.
+     *
+     * @return True if the slot is in use, otherwise false.
+     */
+    public boolean contains(int slot) {
+        return slot >= 0 && slot < slotTop && slotNode[slot] != NONE;
+    }
+
+    /**
+     * @return The number of objects stored in the tree.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns an exclusive upper bound for every slot in use, suitable for a linear scan combined with {@link #contains(int)}.
+     *
+     * @return One past the highest slot handed out since the last {@link #clear()}.
+     */
+    public int slotLimit() {
+        return slotTop;
+    }
+
+    /**
+     * Visits every slot whose bounding box intersects the given range.
+     * <p>
+     * The search descends from the root and skips every child whose boundary does not intersect the range, so only the nodes along the range are touched. Objects outside the root boundary are kept
+     * in the root and are therefore always tested. The sink may safely query the tree again, but must not modify it.
+     * </p>
+     *
+     * @param minX
+     *         The minimum x-coordinate of the range.
+     * @param minY
+     *         The minimum y-coordinate of the range.
+     * @param maxX
+     *         The maximum x-coordinate of the range.
+     * @param maxY
+     *         The maximum y-coordinate of the range.
+     * @param sink
+     *         Receives the slot of every intersecting object.
+     *
+     * @return The number of slots passed to the sink.
+     */
+    public int query(double minX, double minY, double maxX, double maxY, IntConsumer sink) {
+        return query(ROOT, minX, minY, maxX, maxY, sink);
+    }
+
+    private int query(int node, double minX, double minY, double maxX, double maxY, IntConsumer sink) {
+        int found = 0;
+        for (int slot = nodeHead[node]; slot != NONE; slot = slotNext[slot]) {
+            if (slotMinX[slot] <= maxX && slotMaxX[slot] >= minX && slotMinY[slot] <= maxY && slotMaxY[slot] >= minY) {
+                sink.accept(slot);
+                found++;
+            }
+        }
+
+        int firstChild = nodeFirstChild[node];
+        if (firstChild != NONE) {
+            for (int child = firstChild; child < firstChild + 4; child++) {
+                if (nodeMinX[child] <= maxX && nodeMaxX[child] >= minX && nodeMinY[child] <= maxY && nodeMaxY[child] >= minY) {
+                    found += query(child, minX, minY, maxX, maxY, sink);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Visits every node of the tree depth-first, each parent before its children in NW, NE, SW, SE order.
+     *
+     * @param sink
+     *         Receives the index of every node.
+     *
+     * @return The number of nodes visited.
+     */
+    public int forEachNode(IntConsumer sink) {
+        return forEachNode(ROOT, sink);
+    }
+
+    private int forEachNode(int node, IntConsumer sink) {
+        sink.accept(node);
+        int visited    = 1;
+        int firstChild = nodeFirstChild[node];
+        if (firstChild != NONE) {
+            for (int child = firstChild; child < firstChild + 4; child++) {
+                visited += forEachNode(child, sink);
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * @return The parent of the node, or {@link #NONE} for the root.
+     */
+    public int getParent(int node) {
+        return nodeParent[node];
+    }
+
+    /**
+     * @return The first slot owned by the node itself, or {@link #NONE} if it owns none.
+     */
+    public int getFirstSlot(int node) {
+        return nodeHead[node];
+    }
+
+    /**
+     * @return The slot following the given one in its owning node, or {@link #NONE} if it is the last.
+     */
+    public int getNextSlot(int slot) {
+        return slotNext[slot];
+    }
+
+    public double getNodeMinX(int node) {
+        return nodeMinX[node];
+    }
+
+    public double getNodeMinY(int node) {
+        return nodeMinY[node];
+    }
+
+    public double getNodeMaxX(int node) {
+        return nodeMaxX[node];
+    }
+
+    public double getNodeMaxY(int node) {
+        return nodeMaxY[node];
+    }
+
+    public double getMinX(int slot) {
+        return slotMinX[slot];
+    }
+
+    public double getMinY(int slot) {
+        return slotMinY[slot];
+    }
+
+    public double getMaxX(int slot) {
+        return slotMaxX[slot];
+    }
+
+    public double getMaxY(int slot) {
+        return slotMaxY[slot];
+    }
+
+    private void checkSlot(int slot) {
+        if (!contains(slot)) {
+            throw new IllegalArgumentException("Slot " + slot + " is not in use");
+        }
+    }
+
+    private void setBounds(int slot, double minX, double minY, double maxX, double maxY) {
+        slotMinX[slot] = minX;
+        slotMinY[slot] = minY;
+        slotMaxX[slot] = maxX;
+        slotMaxY[slot] = maxY;
+    }
+
+    /**
+     * Descends from the given node to the deepest node that fully contains the slot, links it there and splits that node if it overflows.
+     */
+    private void place(int slot, int node) {
+        int quadrant;
+        while (nodeFirstChild[node] != NONE && (quadrant = quadrantOf(node, slot)) != NONE) {
+            node = nodeFirstChild[node] + quadrant;
+        }
+
+        link(slot, node);
+        if (nodeCount[node] > maxObjects && nodeLevel[node] < maxLevels && nodeFirstChild[node] == NONE) {
+            split(node);
+            partition(node);
+        }
+    }
+
+    /**
+     * Moves the slots owned by a freshly split node into its children, where possible.
+     */
+    private void partition(int node) {
+        int firstChild = nodeFirstChild[node];
+        int slot       = nodeHead[node];
+        while (slot != NONE) {
+            int next     = slotNext[slot];
+            int quadrant = quadrantOf(node, slot);
+            if (quadrant != NONE) {
+                unlink(slot);
+                place(slot, firstChild + quadrant);
+            }
+            slot = next;
+        }
+    }
+
+    private void split(int node) {
+        int    firstChild = allocateBlock();
+        double minX       = nodeMinX[node];
+        double minY       = nodeMinY[node];
+        double midX       = minX + (nodeMaxX[node] - minX) / 2;
+        double midY       = minY + (nodeMaxY[node] - minY) / 2;
+
+        initNode(firstChild, node, minX, minY, midX, midY);                          // NW
+        initNode(firstChild + 1, node, midX, minY, nodeMaxX[node], midY);            // NE
+        initNode(firstChild + 2, node, minX, midY, midX, nodeMaxY[node]);            // SW
+        initNode(firstChild + 3, node, midX, midY, nodeMaxX[node], nodeMaxY[node]);  // SE
+        nodeFirstChild[node] = firstChild;
+    }
+
+    private void initNode(int node, int parent, double minX, double minY, double maxX, double maxY) {
+        nodeMinX[node]       = minX;
+        nodeMinY[node]       = minY;
+        nodeMaxX[node]       = maxX;
+        nodeMaxY[node]       = maxY;
+        nodeLevel[node]      = nodeLevel[parent] + 1;
+        nodeParent[node]     = parent;
+        nodeFirstChild[node] = NONE;
+        nodeHead[node]       = NONE;
+        nodeCount[node]      = 0;
+    }
+
+    /**
+     * Folds the children of the given node's ancestors back into them while the combined subtree fits into a single leaf.
+     */
+    private void collapse(int node) {
+        int parent = nodeFirstChild[node] == NONE ? nodeParent[node] : node;
+        while (parent != NONE && canCollapse(parent)) {
+            int firstChild = nodeFirstChild[parent];
+            for (int child = firstChild; child < firstChild + 4; child++) {
+                int slot = nodeHead[child];
+                while (slot != NONE) {
+                    int next = slotNext[slot];
+                    link(slot, parent);
+                    slot = next;
+                }
+            }
+            nodeFirstChild[parent] = NONE;
+            nodeHead[firstChild]   = freeBlock;
+            freeBlock              = firstChild;
+            parent                 = nodeParent[parent];
+        }
+    }
+
+    private boolean canCollapse(int node) {
+        int firstChild = nodeFirstChild[node];
+        if (firstChild == NONE) {
+            return false;
+        }
+        int total = nodeCount[node];
+        for (int child = firstChild; child < firstChild + 4; child++) {
+            if (nodeFirstChild[child] != NONE) {
+                return false;
+            }
+            total += nodeCount[child];
+        }
+        return total <= maxObjects;
+    }
+
+    /**
+     * Checks whether the given node is the node a fresh insertion of the slot would pass through.
+     */
+    private boolean belongsTo(int slot, int node) {
+        int parent = nodeParent[node];
+        if (parent == NONE) {
+            return true;
+        }
+        int quadrant = quadrantOf(parent, slot);
+        return quadrant != NONE && nodeFirstChild[parent] + quadrant == node;
+    }
+
+    /**
+     * Determines which child quadrant of the node fully contains the slot's bounding box.
+     *
+     * @return 0 to 3 for NW, NE, SW and SE, or {@link #NONE} if the box straddles a midpoint or the node boundary.
+     */
+    private int quadrantOf(int node, int slot) {
+        double verticalMidpoint   = nodeMinX[node] + (nodeMaxX[node] - nodeMinX[node]) / 2;
+        double horizontalMidpoint = nodeMinY[node] + (nodeMaxY[node] - nodeMinY[node]) / 2;
+
+        boolean topQuadrant    = (slotMinY[slot] > nodeMinY[node]) && (slotMaxY[slot] < horizontalMidpoint);
+        boolean bottomQuadrant = (slotMinY[slot] > horizontalMidpoint) && (slotMaxY[slot] < nodeMaxY[node]);
+        boolean leftQuadrant   = (slotMinX[slot] > nodeMinX[node]) && (slotMaxX[slot] < verticalMidpoint);
+        boolean rightQuadrant  = (slotMinX[slot] > verticalMidpoint) && (slotMaxX[slot] < nodeMaxX[node]);
+
+        if (leftQuadrant) {
+            if (topQuadrant) {
+                return 0;
+            } else if (bottomQuadrant) {
+                return 2;
+            }
+        } else if (rightQuadrant) {
+            if (topQuadrant) {
+                return 1;
+            } else if (bottomQuadrant) {
+                return 3;
+            }
+        }
+        return NONE;
+    }
+
+    private void link(int slot, int node) {
+        int head = nodeHead[node];
+        slotNode[slot] = node;
+        slotPrev[slot] = NONE;
+        slotNext[slot] = head;
+        if (head != NONE) {
+            slotPrev[head] = slot;
+        }
+        nodeHead[node] = slot;
+        nodeCount[node]++;
+    }
+
+    private void unlink(int slot) {
+        int node = slotNode[slot];
+        int prev = slotPrev[slot];
+        int next = slotNext[slot];
+        if (prev != NONE) {
+            slotNext[prev] = next;
+        } else {
+            nodeHead[node] = next;
+        }
+        if (next != NONE) {
+            slotPrev[next] = prev;
+        }
+        nodeCount[node]--;
+    }
+
+    private int allocateSlot() {
+        if (freeSlot != NONE) {
+            int slot = freeSlot;
+            freeSlot = slotNext[slot];
+            return slot;
+        }
+        if (slotTop == slotNode.length) {
+            int capacity = slotNode.length * 2;
+            slotMinX = Arrays.copyOf(slotMinX, capacity);
+            slotMinY = Arrays.copyOf(slotMinY, capacity);
+            slotMaxX = Arrays.copyOf(slotMaxX, capacity);
+            slotMaxY = Arrays.copyOf(slotMaxY, capacity);
+            slotNode = Arrays.copyOf(slotNode, capacity);
+            slotNext = Arrays.copyOf(slotNext, capacity);
+            slotPrev = Arrays.copyOf(slotPrev, capacity);
+        }
+        return slotTop++;
+    }
+
+    private int allocateBlock() {
+        if (freeBlock != NONE) {
+            int block = freeBlock;
+            freeBlock = nodeHead[block];
+            return block;
+        }
+        if (nodeTop + 4 > nodeParent.length) {
+            int capacity = Math.max(nodeParent.length * 2, nodeTop + 4);
+            nodeMinX       = Arrays.copyOf(nodeMinX, capacity);
+            nodeMinY       = Arrays.copyOf(nodeMinY, capacity);
+            nodeMaxX       = Arrays.copyOf(nodeMaxX, capacity);
+            nodeMaxY       = Arrays.copyOf(nodeMaxY, capacity);
+            nodeLevel      = Arrays.copyOf(nodeLevel, capacity);
+            nodeParent     = Arrays.copyOf(nodeParent, capacity);
+            nodeFirstChild = Arrays.copyOf(nodeFirstChild, capacity);
+            nodeHead       = Arrays.copyOf(nodeHead, capacity);
+            nodeCount      = Arrays.copyOf(nodeCount, capacity);
+        }
+        int block = nodeTop;
+        nodeTop += 4;
+        return block;
+    }
+}
@@ -0,0 +1,304 @@
+package com.games.jezzball.games.files2;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Predicts every ball-ball and ball-wall collision within a horizon at once, splitting the work by QuadTree node across a {@link ForkJoinPool}.
+ * <p>
+ * Each run indexes the box every object sweeps over the horizon in a {@link PackedQuadTree} of its own. Two objects can only meet within the horizon if their swept boxes overlap, and two boxes that
+ * overlap are either owned by the same node or one of them is owned by an ancestor of the other's node, since boxes in different quadrants are disjoint. Every node is therefore an independent unit
+ * of work: it tests the objects it owns against each other and against the objects its ancestors hold across their midpoints, but only those that reach into the node's boundary. That way each pair
+ * is tested exactly once, by the deeper of the two nodes, and an object straddling a midpoint high up in the tree is only tested against the few nodes along that midpoint.
+ * </p>
+ * <p>
+ * The nodes are split into ranges that are forked recursively, so idle workers steal whatever ranges are left. Each worker batches its ball-ball pairs for {@link BallStore#timesOfImpact(int[], int[],
+ * int, double[])} and collects its hits in a buffer it takes from the detector for the range and hands back afterwards, so the detector never holds more buffers than ranges ever ran at once and no
+ * thread keeps one once it leaves the pool. Once every range is done the buffers are merged, sorted by the slots of the pair, so the result does not depend on how the work was spread over the
+ * threads, and cleared. Wall-wall pairs are left to the caller.
+ * </p>
+ * <p>
+ * The balls and walls must not change while a run is in progress. A detector is driven by one thread at a time.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.2
+ */
+final class ParallelLeafDetector {
+    private static final int MAX_OBJECTS    = 16;
+    private static final int MAX_LEVELS     = 6;
+    private static final int NODES_PER_TASK = 8;
+    private static final int BATCH_SIZE     = 256;
+
+    private final ForkJoinPool       pool;
+    private final PackedQuadTree     tree    = new PackedQuadTree(0, 0, 0, 0, 0, MAX_OBJECTS, MAX_LEVELS);
+    private final List<WorkerBuffer> buffers = new ArrayList<>();  // Every buffer not taken by a range, guarded by itself; between runs that is every buffer
+    private final List<Hit>          merged  = new ArrayList<>();
+
+    // Swept bounds of every object, balls first and walls after them, and the nodes of the tree built from them
+    private double[] minX  = new double[0];
+    private double[] minY  = new double[0];
+    private double[] maxX  = new double[0];
+    private double[] maxY  = new double[0];
+    private int[]    nodes = new int[0];
+    private int      nodeCount;
+
+    // The run in progress, published to the workers by forking
+    private BallStore  store;
+    private List<Wall> walls;
+    private double     horizon;
+    private int        ballCount;
+
+    ParallelLeafDetector(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Predicts the collisions of every ball with every other ball and wall within the horizon, assuming they all keep their current velocities.
+     *
+     * @param store
+     *         The balls, all at the current time.
+     * @param walls
+     *         The walls, indexed after the balls.
+     * @param horizon
+     *         How far ahead to predict.
+     * @param sink
+     *         Receives every collision within the horizon, ordered by the slots of the objects involved.
+     *
+     * @return The number of collisions passed to the sink.
+     */
+    int detect(BallStore store, List<Wall> walls, double horizon, Consumer<? super CollisionDetail<?, ?>> sink) {
+        this.store     = store;
+        this.walls     = walls;
+        this.horizon   = horizon;
+        this.ballCount = store.size();
+        try {
+            buildTree();
+            pool.invoke(new NodeRange(0, nodeCount));
+
+            // Every range has handed its buffer back by now
+            synchronized (buffers) {
+                for (WorkerBuffer worker : buffers) {
+                    merged.addAll(worker.hits);
+                }
+            }
+            merged.sort(Comparator.comparingLong(Hit::pair));
+            for (Hit hit : merged) {
+                sink.accept(hit.detail());
+            }
+            return merged.size();
+        } finally {
+            synchronized (buffers) {
+                for (WorkerBuffer worker : buffers) {
+                    worker.clear();
+                }
+            }
+            merged.clear();
+            this.store = null;
+            this.walls = null;
+        }
+    }
+
+    /**
+     * Indexes the swept box of every object in a tree whose root just covers them all, so no object is left in the root for lying outside of it.
+     */
+    private void buildTree() {
+        int objectCount = ballCount + walls.size();
+        if (minX.length < objectCount) {
+            int capacity = Math.max(objectCount, minX.length * 2);
+            minX = new double[capacity];
+            minY = new double[capacity];
+            maxX = new double[capacity];
+            maxY = new double[capacity];
+        }
+        store.computeSweptBounds(horizon, minX, minY, maxX, maxY);
+        for (int k = 0; k < walls.size(); k++) {
+            Wall   wall  = walls.get(k);
+            AABB   aabb  = wall.getAABB();
+            double slack = wall.getGrowthRate() * horizon;
+            int    slot  = ballCount + k;
+            minX[slot] = aabb.minX() - slack;
+            minY[slot] = aabb.minY() - slack;
+            maxX[slot] = aabb.maxX() + slack;
+            maxY[slot] = aabb.maxY() + slack;
+        }
+
+        double rootMinX = Double.POSITIVE_INFINITY, rootMinY = Double.POSITIVE_INFINITY;
+        double rootMaxX = Double.NEGATIVE_INFINITY, rootMaxY = Double.NEGATIVE_INFINITY;
+        for (int slot = 0; slot < objectCount; slot++) {
+            rootMinX = Math.min(rootMinX, minX[slot]);
+            rootMinY = Math.min(rootMinY, minY[slot]);
+            rootMaxX = Math.max(rootMaxX, maxX[slot]);
+            rootMaxY = Math.max(rootMaxY, maxY[slot]);
+        }
+        if (objectCount == 0) {
+            rootMinX = rootMinY = rootMaxX = rootMaxY = 0;
+        }
+
+        // A cleared tree hands out slots in insertion order, so slots match the object indices above
+        tree.clear(rootMinX, rootMinY, rootMaxX, rootMaxY);
+        for (int slot = 0; slot < objectCount; slot++) {
+            tree.insert(minX[slot], minY[slot], maxX[slot], maxY[slot]);
+        }
+
+        nodeCount = 0;
+        tree.forEachNode(node -> {
+            if (nodeCount == nodes.length) {
+                nodes = Arrays.copyOf(nodes, Math.max(16, nodes.length * 2));
+            }
+            nodes[nodeCount++] = node;
+        });
+    }
+
+    /**
+     * Takes an idle buffer for a range, or creates one if every buffer is taken.
+     */
+    private WorkerBuffer takeBuffer() {
+        synchronized (buffers) {
+            return buffers.isEmpty() ? new WorkerBuffer() : buffers.remove(buffers.size() - 1);
+        }
+    }
+
+    private void returnBuffer(WorkerBuffer worker) {
+        synchronized (buffers) {
+            buffers.add(worker);
+        }
+    }
+
+    /**
+     * A range of nodes, split in halves until it is small enough to process in one go.
+     */
+    private final class NodeRange extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        private NodeRange(int from, int to) {
+            this.from = from;
+            this.to   = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > NODES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new NodeRange(from, middle), new NodeRange(middle, to));
+                return;
+            }
+            WorkerBuffer worker = takeBuffer();
+            try {
+                for (int k = from; k < to; k++) {
+                    worker.detect(nodes[k]);
+                }
+                worker.flush();
+            } finally {
+                returnBuffer(worker);
+            }
+        }
+    }
+
+    /**
+     * The candidate pairs and hits of the ranges that took this buffer during a run, used by one range at a time.
+     */
+    private final class WorkerBuffer {
+        private final List<Hit> hits    = new ArrayList<>();
+        private       int[]     outer   = new int[16];  // Ancestor slots reaching into the current node
+        private final int[]     first   = new int[BATCH_SIZE];
+        private final int[]     second  = new int[BATCH_SIZE];
+        private final double[]  times   = new double[BATCH_SIZE];
+        private final double[]  contact = new double[2];
+        private       int       pairs;
+
+        /**
+         * Tests the objects owned by the node against each other and against the ancestors' objects that reach into the node.
+         */
+        private void detect(int node) {
+            int outerCount = 0;
+            for (int ancestor = tree.getParent(node); ancestor != PackedQuadTree.NONE; ancestor = tree.getParent(ancestor)) {
+                for (int slot = tree.getFirstSlot(ancestor); slot != PackedQuadTree.NONE; slot = tree.getNextSlot(slot)) {
+                    if (tree.getMinX(slot) <= tree.getNodeMaxX(node) && tree.getMaxX(slot) >= tree.getNodeMinX(node) && tree.getMinY(slot) <= tree.getNodeMaxY(node)
+                        && tree.getMaxY(slot) >= tree.getNodeMinY(node)) {
+                        if (outerCount == outer.length) {
+                            outer = Arrays.copyOf(outer, outerCount * 2);
+                        }
+                        outer[outerCount++] = slot;
+                    }
+                }
+            }
+
+            for (int slot = tree.getFirstSlot(node); slot != PackedQuadTree.NONE; slot = tree.getNextSlot(slot)) {
+                for (int other = tree.getNextSlot(slot); other != PackedQuadTree.NONE; other = tree.getNextSlot(other)) {
+                    test(slot, other);
+                }
+                for (int k = 0; k < outerCount; k++) {
+                    test(slot, outer[k]);
+                }
+            }
+        }
+
+        private void test(int slot, int other) {
+            if (tree.getMinX(slot) > tree.getMaxX(other) || tree.getMaxX(slot) < tree.getMinX(other) || tree.getMinY(slot) > tree.getMaxY(other) || tree.getMaxY(slot) < tree.getMinY(other)) {
+                return;
+            }
+            int low  = Math.min(slot, other);
+            int high = Math.max(slot, other);
+            if (high < ballCount) {
+                first[pairs]  = low;
+                second[pairs] = high;
+                if (++pairs == BATCH_SIZE) {
+                    flush();
+                }
+            } else if (low < ballCount) {
+                Ball   ball = store.get(low);
+                Wall   wall = walls.get(high - ballCount);
+                double time = ball.calculateTimeToWall(wall, contact);
+                if (time <= horizon) {
+                    hits.add(new Hit(pairOf(low, high), new CollisionDetail<>(time, contact[0], contact[1], ball, wall)));
+                }
+            }
+        }
+
+        /**
+         * Solves the batched ball-ball pairs and keeps the ones that meet within the horizon.
+         */
+        private void flush() {
+            if (pairs > 0 && store.timesOfImpact(first, second, pairs, times) > 0) {
+                for (int k = 0; k < pairs; k++) {
+                    double time = times[k];
+                    if (time <= horizon) {
+                        int i = first[k];
+                        hits.add(new Hit(pairOf(i, second[k]),
+                                         new CollisionDetail<>(time, store.getX(i) + store.getVx(i) * time, store.getY(i) + store.getVy(i) * time, store.get(i), store.get(second[k]))));
+                    }
+                }
+            }
+            pairs = 0;
+        }
+
+        /**
+         * Forgets the hits and any pairs left over from a run that failed.
+         */
+        private void clear() {
+            hits.clear();
+            pairs = 0;
+        }
+    }
+
+    private static long pairOf(int low, int high) {
+        return (long) low << 32 | high;
+    }
+
+    /**
+     * A predicted collision together with the slots of its objects, which fix its place in the merged result.
+     */
+    private record Hit(long pair, CollisionDetail<?, ?> detail) {
+    }
+}
@@ -0,0 +1,256 @@
+package com.games.jezzball.games.files2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements a QuadTree data structure to store SpatialObjects efficiently based on their positions. It recursively subdivides the space into quadrants to minimize the number of objects to be checked
+ * for collision detection.
+ * <p>
+ * This class is a facade over a {@link PackedQuadTree}, which keeps the nodes and object bounds in flat primitive arrays. Each inserted object is mapped to a slot of the packed tree by identity, so
+ * moving objects can be refreshed with {@link #update(SpatialObject)} and dropped with {@link #remove(SpatialObject)} instead of clearing and rebuilding the whole tree every tick.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.6
+ */
+public class QuadTree implements BroadPhase {
+    private static final int MAX_OBJECTS = 10;
+    private static final int MAX_LEVELS  = 5;
+
+    private final int                         level;
+    private final PackedQuadTree              index;
+    private final Map<SpatialObject, Integer> slots;
+    private       SpatialObject[]             objects;  // Objects by slot, parallel to the packed tree's slot columns
+    private final RangeVisitor                rangeVisitor = new RangeVisitor();
+
+    public QuadTree(int level, Rectangle boundary) {
+        this(level, boundary.x(), boundary.y(), boundary.maxX(), boundary.maxY());
+    }
+
+    /**
+     * Constructs an empty tree covering the given boundary.
+     *
+     * @param level
+     *         The level of the root node.
+     * @param minX
+     *         The minimum x-coordinate of the boundary.
+     * @param minY
+     *         The minimum y-coordinate of the boundary.
+     * @param maxX
+     *         The maximum x-coordinate of the boundary.
+     * @param maxY
+     *         The maximum y-coordinate of the boundary.
+     */
+    public QuadTree(int level, double minX, double minY, double maxX, double maxY) {
+        this.level   = level;
+        this.index   = new PackedQuadTree(minX, minY, maxX, maxY, level, MAX_OBJECTS, MAX_LEVELS);
+        this.slots   = new IdentityHashMap<>();
+        this.objects = new SpatialObject[MAX_OBJECTS];
+    }
+
+    @Override
+    public void clear() {
+        index.clear();
+        slots.clear();
+        Arrays.fill(objects, null);
+    }
+
+    /**
+     * Creates an empty tree with the same level and boundary.
+     */
+    @Override
+    public QuadTree emptyCopy() {
+        int root = PackedQuadTree.ROOT;
+        return new QuadTree(level, index.getNodeMinX(root), index.getNodeMinY(root), index.getNodeMaxX(root), index.getNodeMaxY(root));
+    }
+
+    /**
+     * Inserts a SpatialObject into the appropriate node or child node. Inserting an object that is already in the tree behaves like {@link #update(SpatialObject)}.
+     *
+     * @param obj
+     *         The object to insert.
+     */
+    @Override
+    public void insert(SpatialObject obj) {
+        Integer slot = slots.get(obj);
+        if (slot != null) {
+            update(slot, obj);
+            return;
+        }
+
+        AABB aabb    = obj.getAABB();
+        int  newSlot = index.insert(aabb.minX(), aabb.minY(), aabb.maxX(), aabb.maxY());
+        if (newSlot >= objects.length) {
+            objects = Arrays.copyOf(objects, Math.max(objects.length * 2, newSlot + 1));
+        }
+        objects[newSlot] = obj;
+        slots.put(obj, newSlot);
+    }
+
+    /**
+     * Moves a SpatialObject to the node matching its current bounding box without touching any other object.
+     *
+     * @param obj
+     *         The object whose position or size changed.
+     *
+     * @throws IllegalArgumentException
+     *         if the object is not in the tree.
+     */
+    @Override
+    public void update(SpatialObject obj) {
+        Integer slot = slots.get(obj);
+        if (slot == null) {
+            throw new IllegalArgumentException("Object is not in the tree");
+        }
+        update(slot, obj);
+    }
+
+    private void update(int slot, SpatialObject obj) {
+        AABB aabb = obj.getAABB();
+        index.update(slot, aabb.minX(), aabb.minY(), aabb.maxX(), aabb.maxY());
+    }
+
+    /**
+     * Removes a SpatialObject from the tree.
+     *
+     * @param obj
+     *         The object to remove.
+     *
+     * @return True if the object was in the tree, otherwise false.
+     */
+    @Override
+    public boolean remove(SpatialObject obj) {
+        Integer slot = slots.remove(obj);
+        if (slot == null) {
+            return false;
+        }
+        index.remove(slot);
+        objects[slot] = null;
+        return true;
+    }
+
+    /**
+     * @return The number of objects in the tree.
+     */
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Queries the QuadTree to find all objects of a certain type.
+     *
+     * @param clazz
+     *         The class type to look for.
+     * @param <T>
+     *         The type parameter, extending SpatialObject.
+     *
+     * @return A list of objects of the specified type.
+     */
+    public <T extends SpatialObject> List<T> queryType(Class<T> clazz) {
+        List<T> result = new ArrayList<>();
+        queryType(clazz, result::add);
+        return result;
+    }
+
+    /**
+     * Passes every object of a certain type to the given sink.
+     *
+     * @param clazz
+     *         The class type to look for.
+     * @param sink
+     *         Receives each matching object.
+     * @param <T>
+     *         The type parameter, extending SpatialObject.
+     *
+     * @return The number of objects passed to the sink.
+     */
+    public <T extends SpatialObject> int queryType(Class<T> clazz, Consumer<? super T> sink) {
+        int found = 0;
+        for (int slot = 0, limit = index.slotLimit(); slot < limit; slot++) {
+            if (index.contains(slot) && clazz.isInstance(objects[slot])) {
+                sink.accept(clazz.cast(objects[slot]));
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Queries the QuadTree for objects within a specified bounding box and passes them to the given sink.
+     * <p>
+     * Only the nodes whose boundary intersects the bounding box are visited. Candidates whose AABB overlaps the box are then checked with
+     * {@link SpatialObject#intersects(double, double, double, double)}. Neither step allocates.
+     * </p>
+     *
+     * @param x1
+     *         The x-coordinate of the top-left corner of the bounding box.
+     * @param y1
+     *         The y-coordinate of the top-left corner of the bounding box.
+     * @param x2
+     *         The x-coordinate of the bottom-right corner of the bounding box.
+     * @param y2
+     *         The y-coordinate of the bottom-right corner of the bounding box.
+     * @param clazz
+     *         The class type to look for.
+     * @param sink
+     *         Receives each matching object.
+     *
+     * @return The number of objects passed to the sink.
+     */
+    @Override
+    public <T extends SpatialObject> int queryRange(double x1, double y1, double x2, double y2, Class<T> clazz, Consumer<? super T> sink) {
+        RangeVisitor visitor = rangeVisitor.busy ? new RangeVisitor() : rangeVisitor;
+        visitor.begin(x1, y1, x2, y2, clazz, sink);
+        try {
+            index.query(x1, y1, x2, y2, visitor);
+            return visitor.found;
+        } finally {
+            visitor.end();
+        }
+    }
+
+    /**
+     * Filters the slots reported by the packed tree by type and exact shape. One instance is reused by every query; a nested query issued from inside a sink gets its own instance.
+     */
+    private final class RangeVisitor implements IntConsumer {
+        private double                          minX, minY, maxX, maxY;
+        private Class<? extends SpatialObject>  clazz;
+        private Consumer<? super SpatialObject> sink;
+        private int                             found;
+        private boolean                         busy;
+
+        @SuppressWarnings("unchecked") // The sink only ever receives instances of clazz
+        private <T extends SpatialObject> void begin(double minX, double minY, double maxX, double maxY, Class<T> clazz, Consumer<? super T> sink) {
+            this.minX  = minX;
+            this.minY  = minY;
+            this.maxX  = maxX;
+            this.maxY  = maxY;
+            this.clazz = clazz;
+            this.sink  = (Consumer<? super SpatialObject>) sink;
+            this.found = 0;
+            this.busy  = true;
+        }
+
+        private void end() {
+            clazz = null;
+            sink  = null;
+            busy  = false;
+        }
+
+        @Override
+        public void accept(int slot) {
+            SpatialObject obj = objects[slot];
+            if (clazz.isInstance(obj) && obj.intersects(minX, minY, maxX, maxY)) {
+                sink.accept(obj);
+                found++;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.games.jezzball.games.files2;
+
+/**
+ * An immutable axis-aligned rectangle given by its top-left corner and its size, used for query ranges and arena boundaries.
+ * <p>
+ * It takes the place of the JavaFX {@code Rectangle} node, so the engine does math on plain values without creating scene-graph nodes or depending on the JavaFX runtime. Like the JavaFX bounds it
+ * replaces, rectangles that merely touch count as intersecting.
+ * </p>
+ *
+ * @param x
+ *         The x-coordinate of the top-left corner.
+ * @param y
+ *         The y-coordinate of the top-left corner.
+ * @param width
+ *         The width, not negative.
+ * @param height
+ *         The height, not negative.
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+public record Rectangle(double x, double y, double width, double height) {
+
+    /**
+     * Constructs a rectangle from its top-left corner and its size.
+     *
+     * @throws IllegalArgumentException
+     *         if the width or height is negative.
+     */
+    public Rectangle {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Width and height should not be negative");
+        }
+    }
+
+    /**
+     * @return The x-coordinate of the right edge.
+     */
+    public double maxX() {
+        return x + width;
+    }
+
+    /**
+     * @return The y-coordinate of the bottom edge.
+     */
+    public double maxY() {
+        return y + height;
+    }
+
+    /**
+     * Checks whether this rectangle intersects the rectangle with the given top-left corner and size.
+     *
+     * @param x
+     *         The x-coordinate of the other rectangle's top-left corner.
+     * @param y
+     *         The y-coordinate of the other rectangle's top-left corner.
+     * @param width
+     *         The width of the other rectangle.
+     * @param height
+     *         The height of the other rectangle.
+     *
+     * @return True if the rectangles overlap or touch, otherwise false.
+     */
+    public boolean intersects(double x, double y, double width, double height) {
+        return x <= maxX() && x + width >= this.x && y <= maxY() && y + height >= this.y;
+    }
+}
@@ -0,0 +1,68 @@
+package com.games.jezzball.games.files2;
+
+/**
+ * The portable {@link NarrowPhase}: a plain loop per batch, left to the JIT to unroll. It also finishes the tail of every batch for {@link VectorNarrowPhase}.
+ *
+ * @author Colin Jokisch
+ * @version 1.1
+ */
+final class ScalarNarrowPhase implements NarrowPhase {
+    @Override
+    public int timesOfImpact(double[] x, double[] y, double[] vx, double[] vy, double[] radius, int index, int[] candidates, int count, double[] times) {
+        return timesOfImpact(x, y, vx, vy, radius, index, candidates, 0, count, times);
+    }
+
+    @Override
+    public int timesOfImpact(double[] x, double[] y, double[] vx, double[] vy, double[] radius, int[] first, int[] second, int count, double[] times) {
+        return timesOfImpact(x, y, vx, vy, radius, first, second, 0, count, times);
+    }
+
+    /**
+     * Solves the candidates from position {@code from} up to, but excluding, {@code to}.
+     */
+    static int timesOfImpact(double[] x, double[] y, double[] vx, double[] vy, double[] radius, int index, int[] candidates, int from, int to, double[] times) {
+        double px = x[index], py = y[index], pvx = vx[index], pvy = vy[index], pr = radius[index];
+        int    hits = 0;
+        for (int k = from; k < to; k++) {
+            int    other = candidates[k];
+            double t     = timeOfImpact(x[other] - px, y[other] - py, vx[other] - pvx, vy[other] - pvy, pr + radius[other]);
+            times[k] = t;
+            if (t != Double.POSITIVE_INFINITY) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Solves the pairs from position {@code from} up to, but excluding, {@code to}.
+     */
+    static int timesOfImpact(double[] x, double[] y, double[] vx, double[] vy, double[] radius, int[] first, int[] second, int from, int to, double[] times) {
+        int hits = 0;
+        for (int k = from; k < to; k++) {
+            int    i = first[k];
+            int    j = second[k];
+            double t = timeOfImpact(x[j] - x[i], y[j] - y[i], vx[j] - vx[i], vy[j] - vy[i], radius[i] + radius[j]);
+            times[k] = t;
+            if (t != Double.POSITIVE_INFINITY) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Solves a single pair from its relative position, relative velocity and the sum of the radii.
+     */
+    private static double timeOfImpact(double dx, double dy, double dvx, double dvy, double reach) {
+        double a            = dvx * dvx + dvy * dvy;
+        double b            = 2 * (dx * dvx + dy * dvy);
+        double c            = dx * dx + dy * dy - reach * reach;
+        double discriminant = b * b - 4 * a * c;
+
+        // Only balls approaching faster than the minimum meet, which also keeps a positive, so the earlier root is the one taking the smaller square root. Balls that overlap by no more than
+        // the contact tolerance have that root in the past and collide at once
+        double t = Math.max(0, (-b - Math.sqrt(discriminant)) / (2 * a));
+        return c >= -2 * Ball.CONTACT_TOLERANCE * reach && b < -2 * Ball.MIN_APPROACH_SPEED * reach && discriminant >= 0 ? t : Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,341 @@
+package com.games.jezzball.games.files2;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A uniform grid broad-phase, hashed so the arena does not need to be known in advance, tuned for many balls of the same radius.
+ * <p>
+ * Cells are {@code 2 * maxBallRadius} wide, so a ball overlaps at most the cell holding its center and that cell's neighbours. Every object that fits in a cell is linked into the bucket of the cell
+ * holding its AABB center through intrusive doubly linked lists in primitive int arrays. Moving an object is therefore constant time: when its center stays in the same bucket only its bounds
+ * change, otherwise it is unlinked from one bucket and linked into another. Objects larger than a cell, such as walls, are kept in a separate list that every query checks directly.
+ * </p>
+ * <p>
+ * A query visits the buckets of every cell its range, grown by half a cell, touches. Buckets are shared by the cells that hash to them, so each bucket is stamped when visited to report every object
+ * once. For that reason a sink must not query the grid again.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.2
+ */
+public class SpatialHashGrid implements BroadPhase {
+    private static final int NONE             = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final double cellSize;
+    private final double inverseCellSize;
+
+    private final Map<SpatialObject, Integer> slots = new IdentityHashMap<>();
+
+    // Slot columns
+    private SpatialObject[] objects    = new SpatialObject[INITIAL_CAPACITY];
+    private double[]        minX       = new double[INITIAL_CAPACITY];
+    private double[]        minY       = new double[INITIAL_CAPACITY];
+    private double[]        maxX       = new double[INITIAL_CAPACITY];
+    private double[]        maxY       = new double[INITIAL_CAPACITY];
+    private int[]           slotBucket = new int[INITIAL_CAPACITY];  // Bucket holding the slot, or NONE for an oversized object
+    private int[]           slotNext   = new int[INITIAL_CAPACITY];  // Next slot in the bucket, or the next free slot
+    private int[]           slotPrev   = new int[INITIAL_CAPACITY];
+    private int[]           largeIndex = new int[INITIAL_CAPACITY];  // Position in large, or NONE for a bucketed object
+    private int             slotTop;
+    private int             freeSlot   = NONE;
+
+    // Buckets
+    private int[] bucketHead  = new int[INITIAL_CAPACITY * 2];
+    private int[] bucketStamp = new int[INITIAL_CAPACITY * 2];
+    private int   bucketMask  = INITIAL_CAPACITY * 2 - 1;
+    private int   bucketed;
+    private int   queryStamp;
+
+    // Objects larger than a cell
+    private int[] large = new int[INITIAL_CAPACITY];
+    private int   largeCount;
+
+    /**
+     * Constructs an empty grid sized for balls up to the given radius.
+     *
+     * @param maxBallRadius
+     *         The radius of the largest ball that will be indexed.
+     */
+    public SpatialHashGrid(double maxBallRadius) {
+        if (maxBallRadius <= 0) {
+            throw new IllegalArgumentException("Maximum ball radius must be positive");
+        }
+        this.cellSize        = 2 * maxBallRadius;
+        this.inverseCellSize = 1 / cellSize;
+        Arrays.fill(bucketHead, NONE);
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    @Override
+    public void insert(SpatialObject obj) {
+        if (slots.containsKey(obj)) {
+            update(obj);
+            return;
+        }
+
+        int slot = allocateSlot();
+        objects[slot]    = obj;
+        slotBucket[slot] = NONE;
+        largeIndex[slot] = NONE;
+        slots.put(obj, slot);
+
+        setBounds(slot, obj.getAABB());
+        if (isLarge(slot)) {
+            addLarge(slot);
+        } else {
+            link(slot, bucketOf(slot));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This is constant time, so it can be called right after every {@link SpatialObject#setPosition(Coordinate)}.
+     * </p>
+     */
+    @Override
+    public void update(SpatialObject obj) {
+        Integer slot = slots.get(obj);
+        if (slot == null) {
+            throw new IllegalArgumentException("Object is not indexed");
+        }
+
+        setBounds(slot, obj.getAABB());
+        if (isLarge(slot)) {
+            if (slotBucket[slot] != NONE) {
+                unlink(slot);
+                addLarge(slot);
+            }
+            return;
+        }
+
+        if (slotBucket[slot] == NONE) {
+            removeLarge(slot);
+            link(slot, bucketOf(slot));
+        } else {
+            int bucket = bucketOf(slot);
+            if (bucket != slotBucket[slot]) {
+                unlink(slot);
+                link(slot, bucket);
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(SpatialObject obj) {
+        Integer slot = slots.remove(obj);
+        if (slot == null) {
+            return false;
+        }
+
+        if (slotBucket[slot] != NONE) {
+            unlink(slot);
+        } else {
+            removeLarge(slot);
+        }
+        objects[slot]  = null;
+        slotNext[slot] = freeSlot;
+        freeSlot       = slot;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        slots.clear();
+        Arrays.fill(objects, 0, slotTop, null);
+        Arrays.fill(bucketHead, NONE);
+        slotTop    = 0;
+        freeSlot   = NONE;
+        bucketed   = 0;
+        largeCount = 0;
+    }
+
+    /**
+     * Creates an empty grid with the same cell size.
+     */
+    @Override
+    public SpatialHashGrid emptyCopy() {
+        return new SpatialHashGrid(cellSize / 2);
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    @Override
+    public <T extends SpatialObject> int queryRange(double x1, double y1, double x2, double y2, Class<T> clazz, Consumer<? super T> sink) {
+        int found = 0;
+
+        // A bucketed object's center is at most half a cell outside its AABB
+        double halfCell = cellSize / 2;
+        long   cellX1   = cell(x1 - halfCell);
+        long   cellY1   = cell(y1 - halfCell);
+        long   cellX2   = cell(x2 + halfCell);
+        long   cellY2   = cell(y2 + halfCell);
+
+        if (++queryStamp == 0) {
+            Arrays.fill(bucketStamp, 0);
+            queryStamp = 1;
+        }
+        if ((cellX2 - cellX1 + 1) * (cellY2 - cellY1 + 1) >= bucketHead.length) {
+            // The range covers more cells than there are buckets, so visiting every bucket once is cheaper
+            for (int bucket = 0; bucket < bucketHead.length; bucket++) {
+                found += queryBucket(bucket, x1, y1, x2, y2, clazz, sink);
+            }
+        } else {
+            for (long cellY = cellY1; cellY <= cellY2; cellY++) {
+                for (long cellX = cellX1; cellX <= cellX2; cellX++) {
+                    int bucket = hash(cellX, cellY);
+                    if (bucketStamp[bucket] != queryStamp) {
+                        bucketStamp[bucket] = queryStamp;
+                        found += queryBucket(bucket, x1, y1, x2, y2, clazz, sink);
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < largeCount; i++) {
+            if (accept(large[i], x1, y1, x2, y2, clazz, sink)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private <T extends SpatialObject> int queryBucket(int bucket, double x1, double y1, double x2, double y2, Class<T> clazz, Consumer<? super T> sink) {
+        int found = 0;
+        for (int slot = bucketHead[bucket]; slot != NONE; slot = slotNext[slot]) {
+            if (accept(slot, x1, y1, x2, y2, clazz, sink)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private <T extends SpatialObject> boolean accept(int slot, double x1, double y1, double x2, double y2, Class<T> clazz, Consumer<? super T> sink) {
+        if (minX[slot] > x2 || maxX[slot] < x1 || minY[slot] > y2 || maxY[slot] < y1) {
+            return false;
+        }
+        SpatialObject obj = objects[slot];
+        if (!clazz.isInstance(obj) || !obj.intersects(x1, y1, x2, y2)) {
+            return false;
+        }
+        sink.accept(clazz.cast(obj));
+        return true;
+    }
+
+    private boolean isLarge(int slot) {
+        return maxX[slot] - minX[slot] > cellSize || maxY[slot] - minY[slot] > cellSize;
+    }
+
+    private void setBounds(int slot, AABB aabb) {
+        minX[slot] = aabb.minX();
+        minY[slot] = aabb.minY();
+        maxX[slot] = aabb.maxX();
+        maxY[slot] = aabb.maxY();
+    }
+
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate * inverseCellSize);
+    }
+
+    private int bucketOf(int slot) {
+        return hash(cell((minX[slot] + maxX[slot]) / 2), cell((minY[slot] + maxY[slot]) / 2));
+    }
+
+    private int hash(long cellX, long cellY) {
+        long h = cellX * 0x9E3779B97F4A7C15L ^ cellY * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32)) & bucketMask;
+    }
+
+    private void link(int slot, int bucket) {
+        int head = bucketHead[bucket];
+        slotBucket[slot] = bucket;
+        slotPrev[slot]   = NONE;
+        slotNext[slot]   = head;
+        if (head != NONE) {
+            slotPrev[head] = slot;
+        }
+        bucketHead[bucket] = slot;
+        if (++bucketed > bucketHead.length / 2) {
+            rehash();
+        }
+    }
+
+    private void unlink(int slot) {
+        int prev = slotPrev[slot];
+        int next = slotNext[slot];
+        if (prev != NONE) {
+            slotNext[prev] = next;
+        } else {
+            bucketHead[slotBucket[slot]] = next;
+        }
+        if (next != NONE) {
+            slotPrev[next] = prev;
+        }
+        slotBucket[slot] = NONE;
+        bucketed--;
+    }
+
+    /**
+     * Doubles the bucket table and relinks every bucketed object, keeping the load factor at or below one half.
+     */
+    private void rehash() {
+        int capacity = bucketHead.length * 2;
+        bucketHead  = new int[capacity];
+        bucketStamp = new int[capacity];
+        bucketMask  = capacity - 1;
+        Arrays.fill(bucketHead, NONE);
+
+        bucketed = 0;
+        for (int slot = 0; slot < slotTop; slot++) {
+            if (objects[slot] != null && slotBucket[slot] != NONE) {
+                link(slot, bucketOf(slot));
+            }
+        }
+    }
+
+    private void addLarge(int slot) {
+        if (largeCount == large.length) {
+            large = Arrays.copyOf(large, largeCount * 2);
+        }
+        largeIndex[slot]    = largeCount;
+        large[largeCount++] = slot;
+    }
+
+    private void removeLarge(int slot) {
+        int index = largeIndex[slot];
+        int last  = large[--largeCount];
+        large[index]     = last;
+        largeIndex[last] = index;
+        largeIndex[slot] = NONE;
+    }
+
+    private int allocateSlot() {
+        if (freeSlot != NONE) {
+            int slot = freeSlot;
+            freeSlot = slotNext[slot];
+            return slot;
+        }
+        if (slotTop == objects.length) {
+            int capacity = slotTop * 2;
+            objects    = Arrays.copyOf(objects, capacity);
+            minX       = Arrays.copyOf(minX, capacity);
+            minY       = Arrays.copyOf(minY, capacity);
+            maxX       = Arrays.copyOf(maxX, capacity);
+            maxY       = Arrays.copyOf(maxY, capacity);
+            slotBucket = Arrays.copyOf(slotBucket, capacity);
+            slotNext   = Arrays.copyOf(slotNext, capacity);
+            slotPrev   = Arrays.copyOf(slotPrev, capacity);
+            largeIndex = Arrays.copyOf(largeIndex, capacity);
+        }
+        return slotTop++;
+    }
+}
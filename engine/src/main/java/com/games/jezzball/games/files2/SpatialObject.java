@@ -11,12 +11,10 @@
  * </p>
  *
  * @author Colin Jokisch
- * @version 1.0
+ * @version 1.1
  */
 package com.games.jezzball.games.files2;
 
-import javafx.scene.shape.Rectangle;
-
 public interface SpatialObject {
 
     /**
@@ -37,17 +35,33 @@ public interface SpatialObject {
      */
     void setPosition(Coordinate position);
 
+    /**
+     * Determines if the SpatialObject intersects with the given bounding box.
+     * <p>
+     * This is the check every broad-phase query confirms its candidates with, so implementations should neither allocate nor take locks.
+     * </p>
+     *
+     * @param minX The minimum x-coordinate of the box.
+     * @param minY The minimum y-coordinate of the box.
+     * @param maxX The maximum x-coordinate of the box.
+     * @param maxY The maximum y-coordinate of the box.
+     * @return True if the SpatialObject intersects with the box, otherwise false.
+     */
+    boolean intersects(double minX, double minY, double maxX, double maxY);
+
     /**
      * Determines if the SpatialObject intersects with a given Rectangle.
      * <p>
      * This method is usually used for collision detection between the SpatialObject and other objects in
-     * the game arena.
+     * the game arena. It is the same check as {@link #intersects(double, double, double, double)}.
      * </p>
      *
      * @param range The Rectangle with which to check for intersection.
      * @return True if the SpatialObject intersects with the Rectangle, otherwise false.
      */
-    boolean rectangleIntersection(Rectangle range);
+    default boolean rectangleIntersection(Rectangle range) {
+        return intersects(range.x(), range.y(), range.maxX(), range.maxY());
+    }
 
     /**
      * Retrieves the Axis-Aligned Bounding Box (AABB) of the SpatialObject.
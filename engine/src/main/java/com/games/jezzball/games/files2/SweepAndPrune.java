@@ -0,0 +1,315 @@
+package com.games.jezzball.games.files2;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A sort-and-sweep broad-phase that keeps objects ordered by the minimum x-coordinate of their AABB.
+ * <p>
+ * The order lives in primitive arrays: {@code order} holds the slots sorted by {@code minX} and {@code sortedMinX} holds the matching keys, so a range query is two binary searches followed by a
+ * linear scan over neighbouring entries. Updates restore the order with insertion sort moves from the object's previous rank. Because objects move only a little between ticks, a tick's worth of
+ * updates costs close to linear time.
+ * </p>
+ * <p>
+ * A query has to start {@code maxSortedWidth} to the left of its range to catch objects that begin there and reach into it. Objects wider than {@code wideThreshold}, typically long walls, would
+ * push that margin across most of the arena, so they are kept in a separate list that every query checks directly.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.2
+ */
+public class SweepAndPrune implements BroadPhase {
+    private static final int NONE             = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final double wideThreshold;
+
+    private final Map<SpatialObject, Integer> slots = new IdentityHashMap<>();
+
+    // Slot columns
+    private SpatialObject[] objects   = new SpatialObject[INITIAL_CAPACITY];
+    private double[]        minX      = new double[INITIAL_CAPACITY];
+    private double[]        minY      = new double[INITIAL_CAPACITY];
+    private double[]        maxX      = new double[INITIAL_CAPACITY];
+    private double[]        maxY      = new double[INITIAL_CAPACITY];
+    private int[]           rank      = new int[INITIAL_CAPACITY];  // Position in order, or NONE for a wide object
+    private int[]           wideIndex = new int[INITIAL_CAPACITY];  // Position in wide, or NONE for a sorted object
+    private int             slotTop;
+    private int[]           freeSlots = new int[INITIAL_CAPACITY];
+    private int             freeCount;
+
+    // Sorted objects
+    private int[]    order      = new int[INITIAL_CAPACITY];
+    private double[] sortedMinX = new double[INITIAL_CAPACITY];
+    private int      sortedCount;
+    private double   maxSortedWidth;
+
+    // Wide objects
+    private int[] wide = new int[INITIAL_CAPACITY];
+    private int   wideCount;
+
+    /**
+     * Constructs an empty sweep.
+     *
+     * @param wideThreshold
+     *         The width above which an object is kept out of the sorted order.
+     */
+    public SweepAndPrune(double wideThreshold) {
+        this.wideThreshold = wideThreshold;
+    }
+
+    @Override
+    public void insert(SpatialObject obj) {
+        if (slots.containsKey(obj)) {
+            update(obj);
+            return;
+        }
+
+        int slot = allocateSlot();
+        objects[slot]   = obj;
+        rank[slot]      = NONE;
+        wideIndex[slot] = NONE;
+        slots.put(obj, slot);
+
+        setBounds(slot, obj.getAABB());
+        if (isWide(slot)) {
+            addWide(slot);
+        } else {
+            addSorted(slot);
+        }
+    }
+
+    @Override
+    public void update(SpatialObject obj) {
+        Integer slot = slots.get(obj);
+        if (slot == null) {
+            throw new IllegalArgumentException("Object is not indexed");
+        }
+
+        setBounds(slot, obj.getAABB());
+        if (isWide(slot)) {
+            if (rank[slot] != NONE) {
+                removeSorted(slot);
+                addWide(slot);
+            }
+        } else if (rank[slot] == NONE) {
+            removeWide(slot);
+            addSorted(slot);
+        } else {
+            maxSortedWidth = Math.max(maxSortedWidth, maxX[slot] - minX[slot]);
+            resort(slot);
+        }
+    }
+
+    @Override
+    public boolean remove(SpatialObject obj) {
+        Integer slot = slots.remove(obj);
+        if (slot == null) {
+            return false;
+        }
+
+        if (rank[slot] != NONE) {
+            removeSorted(slot);
+        } else {
+            removeWide(slot);
+        }
+        objects[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        slots.clear();
+        Arrays.fill(objects, 0, slotTop, null);
+        slotTop        = 0;
+        freeCount      = 0;
+        sortedCount    = 0;
+        wideCount      = 0;
+        maxSortedWidth = 0;
+    }
+
+    /**
+     * Creates an empty sweep with the same wide threshold.
+     */
+    @Override
+    public SweepAndPrune emptyCopy() {
+        return new SweepAndPrune(wideThreshold);
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the sorted entries whose {@code minX} lies between {@code x1 - maxSortedWidth} and {@code x2} are visited, plus the wide objects.
+     * </p>
+     */
+    @Override
+    public <T extends SpatialObject> int queryRange(double x1, double y1, double x2, double y2, Class<T> clazz, Consumer<? super T> sink) {
+        int found = 0;
+
+        int end = upperBound(x2);
+        for (int i = lowerBound(x1 - maxSortedWidth); i < end; i++) {
+            if (accept(order[i], x1, y1, x2, y2, clazz, sink)) {
+                found++;
+            }
+        }
+        for (int i = 0; i < wideCount; i++) {
+            if (accept(wide[i], x1, y1, x2, y2, clazz, sink)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private <T extends SpatialObject> boolean accept(int slot, double x1, double y1, double x2, double y2, Class<T> clazz, Consumer<? super T> sink) {
+        if (maxX[slot] < x1 || minY[slot] > y2 || maxY[slot] < y1 || minX[slot] > x2) {
+            return false;
+        }
+        SpatialObject obj = objects[slot];
+        if (!clazz.isInstance(obj) || !obj.intersects(x1, y1, x2, y2)) {
+            return false;
+        }
+        sink.accept(clazz.cast(obj));
+        return true;
+    }
+
+    private boolean isWide(int slot) {
+        return maxX[slot] - minX[slot] > wideThreshold;
+    }
+
+    private void setBounds(int slot, AABB aabb) {
+        minX[slot] = aabb.minX();
+        minY[slot] = aabb.minY();
+        maxX[slot] = aabb.maxX();
+        maxY[slot] = aabb.maxY();
+    }
+
+    /**
+     * Moves a sorted slot left or right until its neighbours are in order again. Each step is one swap, so an object that kept its rank costs a single comparison per side.
+     */
+    private void resort(int slot) {
+        double key = minX[slot];
+        int    i   = rank[slot];
+
+        while (i > 0 && sortedMinX[i - 1] > key) {
+            moveTo(order[i - 1], i);
+            i--;
+        }
+        while (i < sortedCount - 1 && sortedMinX[i + 1] < key) {
+            moveTo(order[i + 1], i);
+            i++;
+        }
+        moveTo(slot, i);
+    }
+
+    private void moveTo(int slot, int position) {
+        order[position]      = slot;
+        sortedMinX[position] = minX[slot];
+        rank[slot]           = position;
+    }
+
+    private void addSorted(int slot) {
+        if (sortedCount == order.length) {
+            order      = Arrays.copyOf(order, sortedCount * 2);
+            sortedMinX = Arrays.copyOf(sortedMinX, sortedCount * 2);
+        }
+
+        int position = upperBound(minX[slot]);
+        System.arraycopy(order, position, order, position + 1, sortedCount - position);
+        System.arraycopy(sortedMinX, position, sortedMinX, position + 1, sortedCount - position);
+        sortedCount++;
+        for (int i = sortedCount - 1; i > position; i--) {
+            rank[order[i]] = i;
+        }
+        moveTo(slot, position);
+        maxSortedWidth = Math.max(maxSortedWidth, maxX[slot] - minX[slot]);
+    }
+
+    private void removeSorted(int slot) {
+        int position = rank[slot];
+        System.arraycopy(order, position + 1, order, position, sortedCount - position - 1);
+        System.arraycopy(sortedMinX, position + 1, sortedMinX, position, sortedCount - position - 1);
+        sortedCount--;
+        for (int i = position; i < sortedCount; i++) {
+            rank[order[i]] = i;
+        }
+        rank[slot] = NONE;
+    }
+
+    private void addWide(int slot) {
+        if (wideCount == wide.length) {
+            wide = Arrays.copyOf(wide, wideCount * 2);
+        }
+        wideIndex[slot]   = wideCount;
+        wide[wideCount++] = slot;
+    }
+
+    private void removeWide(int slot) {
+        int index = wideIndex[slot];
+        int last  = wide[--wideCount];
+        wide[index]      = last;
+        wideIndex[last]  = index;
+        wideIndex[slot]  = NONE;
+    }
+
+    /**
+     * @return The first sorted position whose key is at least the given value.
+     */
+    private int lowerBound(double value) {
+        int low  = 0;
+        int high = sortedCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedMinX[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The first sorted position whose key is greater than the given value.
+     */
+    private int upperBound(double value) {
+        int low  = 0;
+        int high = sortedCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedMinX[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotTop == objects.length) {
+            int capacity = slotTop * 2;
+            objects   = Arrays.copyOf(objects, capacity);
+            minX      = Arrays.copyOf(minX, capacity);
+            minY      = Arrays.copyOf(minY, capacity);
+            maxX      = Arrays.copyOf(maxX, capacity);
+            maxY      = Arrays.copyOf(maxY, capacity);
+            rank      = Arrays.copyOf(rank, capacity);
+            wideIndex = Arrays.copyOf(wideIndex, capacity);
+        }
+        return slotTop++;
+    }
+}
@@ -0,0 +1,717 @@
+package com.games.jezzball.games.files2;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Represents a Wall in the JezzBall game, which can be either stationary or growing. This refactored version calculates the grow velocity of the wall based on its start and end coordinates and grow
+ * speed. It also includes a size property to be used in collision detection, which can represent either width or height.
+ * <p>
+ * Wall objects are responsible for tracking their position, determining if they intersect with a given rectangle, and calculating their Axis-Aligned Bounding Box (AABB).
+ * <p>
+ * Everything about a wall that changes is held in one immutable {@link State}, together with its bounding box and versions. Every change publishes a whole new state with a single atomic swap, so
+ * readers never block and never see one end moved without the other. The orientation follows from the targets and is fixed at construction.
+ * <p>
+ * The bounding box is computed once per published state, reusing what did not change, and handed out as is. Its version only changes when the box does, so an index can tell an unchanged wall
+ * apart without comparing coordinates.
+ * </p>
+ *
+ * @author Colin Jokisch
+ * @version 1.12
+ */
+public class Wall implements SpatialObject {
+    public enum Orientation {
+        HORIZONTAL,
+        VERTICAL
+    }
+
+    private final AtomicReference<State> state;  // Current state of the wall, replaced as a whole on every change
+    private final Wall end1CollideInto;
+    private final Wall end2CollideInto;
+
+    private final Coordinate  target1;     // Target coordinate for the first end of the wall
+    private final Coordinate  target2;     // Target coordinate for the second end of the wall
+    private final double      size;        // Represents the width if vertical and the height if horizontal
+    private final Orientation orientation; // Whether the wall runs horizontally or vertically
+
+    public Wall(Coordinate start, double size, int growthRate, boolean isGrowing, Coordinate target1, Coordinate target2, Wall end1CollideInto, Wall end2CollideInto) {
+        this.size = size;
+        this.target1 = target1;
+        this.target2 = target2;
+        this.end1CollideInto = end1CollideInto;
+        this.end2CollideInto = end2CollideInto;
+        this.orientation = orientationOf(start, target1, target2);
+        // A growing wall starts as a point and extends towards its targets, a stationary wall spans them from the start
+        this.state = new AtomicReference<>(createState(null, start, isGrowing ? start : target1, isGrowing ? start : target2, isGrowing, isGrowing, growthRate, 0));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Coordinate getPosition() {
+        return state.get().start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setPosition(Coordinate position) {
+        publish(current -> createState(current, position, current.end1(), current.end2(), current.growing1(), current.growing2(), current.growthRate(), current.version()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean intersects(double minX, double minY, double maxX, double maxY) {
+        AABB bounds = state.get().bounds();
+        return bounds.minX() <= maxX && bounds.maxX() >= minX && bounds.minY() <= maxY && bounds.maxY() >= minY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AABB getAABB() {
+        return state.get().bounds();
+    }
+
+    /**
+     * Returns the version of the bounding box, which changes whenever the box does and only then.
+     * <p>
+     * An index that records the version when it stores the box of the wall can skip the wall as long as the version stays the same.
+     * </p>
+     *
+     * @return The version of the bounding box.
+     */
+    public int getBoundsVersion() {
+        return state.get().boundsVersion();
+    }
+
+    public Coordinate getCurrentEnd1() {
+        return state.get().end1();
+    }
+
+    public Coordinate getCurrentEnd2() {
+        return state.get().end2();
+    }
+
+    public Coordinate getTarget1() {
+        return target1;
+    }
+
+    public Coordinate getTarget2() {
+        return target2;
+    }
+
+    public double getSize() {
+        return size;
+    }
+
+    public boolean isGrowing() {
+        return state.get().growing();
+    }
+
+    public double getGrowthRate() {
+        return state.get().growthRate();
+    }
+
+    public void stopGrowing() {
+        publish(current -> createState(current, current.start(), current.end1(), current.end2(), false, false, 0, current.version() + 1));
+    }
+
+    /**
+     * Returns the number of times this wall's growth has changed, that is how many times one of its ends stopped.
+     * <p>
+     * Event schedulers record this count when they predict a collision and drop the event if it has changed by the time the event is due. The ends moving at the growth rate does not count, since
+     * predictions against a growing wall already account for it.
+     * </p>
+     *
+     * @return the collision count
+     */
+    public int getCollisionCount() {
+        return state.get().version();
+    }
+
+    /**
+     * Returns the current state of the wall, so that a prediction can work from one snapshot of it through the methods that take a state.
+     *
+     * @return The current state.
+     */
+    State getState() {
+        return state.get();
+    }
+
+    /**
+     * Checks if the wall is horizontal or vertical.
+     * <p>
+     * The orientation is taken from the targets rather than the current ends, since a growing wall starts out as a single point that is aligned both ways.
+     * </p>
+     *
+     * @return the orientation of the wall.
+     */
+    public Orientation getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * Derives the orientation of a wall from its start and targets.
+     *
+     * @throws IllegalArgumentException
+     *         if the coordinates are aligned neither horizontally nor vertically.
+     */
+    private static Orientation orientationOf(Coordinate start, Coordinate target1, Coordinate target2) {
+        if (checkAlignment(start, target1, target2, Coordinate::yEquals)) {
+            return Orientation.HORIZONTAL;
+        } else if (checkAlignment(start, target1, target2, Coordinate::xEquals)) {
+            return Orientation.VERTICAL;
+        } else {
+            throw new IllegalArgumentException("Undefined orientation for wall");
+        }
+    }
+
+    /**
+     * A generic helper method that tests if the coordinates are aligned according to the given predicate.
+     *
+     * @param startCoord
+     *         the start coordinate
+     * @param end1
+     *         the first end coordinate
+     * @param end2
+     *         the second end coordinate
+     * @param alignmentCheck
+     *         the alignment check as a BiPredicate
+     *
+     * @return true if the coordinates are aligned according to the predicate, otherwise false
+     */
+    private static boolean checkAlignment(Coordinate startCoord, Coordinate end1, Coordinate end2, BiPredicate<Coordinate, Coordinate> alignmentCheck) {
+        return alignmentCheck.test(startCoord, end1) && alignmentCheck.test(startCoord, end2);
+    }
+
+    /**
+     * Returns the coordinate of one end along the wall, x for a horizontal wall and y for a vertical one.
+     *
+     * @param end1
+     *         Whether to take the first end rather than the second.
+     *
+     * @return The coordinate of the end along the wall.
+     */
+    double getEndPosition(boolean end1) {
+        return getEndPosition(state.get(), end1);
+    }
+
+    /**
+     * Returns the coordinate of one end along the wall in the given state, see {@link #getEndPosition(boolean)}.
+     */
+    double getEndPosition(State current, boolean end1) {
+        return along(end1 ? current.end1() : current.end2());
+    }
+
+    /**
+     * Returns the coordinate of one end along the wall after the given time, taking into account that it stops once it reaches its target.
+     *
+     * @param end1
+     *         Whether to take the first end rather than the second.
+     * @param time
+     *         The time from now.
+     *
+     * @return The coordinate of the end along the wall at that time.
+     */
+    double getEndPosition(boolean end1, double time) {
+        return getEndPosition(state.get(), end1, time);
+    }
+
+    /**
+     * Returns the coordinate of one end along the wall after the given time from the given state, see {@link #getEndPosition(boolean, double)}.
+     */
+    double getEndPosition(State current, boolean end1, double time) {
+        return getEndPosition(current, end1) + getEndVelocity(current, end1) * Math.min(time, getEndStopTime(current, end1));
+    }
+
+    /**
+     * Returns the velocity of one end along the wall, which is zero once the end has stopped or reached its target. An end counts as having reached its target only when it is exactly on it, so
+     * that one a hair short of it still moves there and stops through its own event.
+     *
+     * @param end1
+     *         Whether to take the first end rather than the second.
+     *
+     * @return The signed velocity of the end along the wall.
+     */
+    double getEndVelocity(boolean end1) {
+        return getEndVelocity(state.get(), end1);
+    }
+
+    /**
+     * Returns the velocity of one end along the wall in the given state, see {@link #getEndVelocity(boolean)}.
+     */
+    double getEndVelocity(State current, boolean end1) {
+        double end    = along(end1 ? current.end1() : current.end2());
+        double target = along(end1 ? target1 : target2);
+        if (!current.growing(end1) || end == target) {
+            return 0;
+        }
+        return Math.signum(target - end) * current.growthRate();
+    }
+
+    /**
+     * Returns the time until one end reaches its target and stops, zero if it does not move.
+     *
+     * @param end1
+     *         Whether to take the first end rather than the second.
+     *
+     * @return The time until the end stops.
+     */
+    double getEndStopTime(boolean end1) {
+        return getEndStopTime(state.get(), end1);
+    }
+
+    /**
+     * Returns the time until one end reaches its target from the given state, see {@link #getEndStopTime(boolean)}.
+     */
+    double getEndStopTime(State current, boolean end1) {
+        double end    = along(end1 ? current.end1() : current.end2());
+        double target = along(end1 ? target1 : target2);
+        if (!current.growing(end1) || current.growthRate() <= 0 || end == target) {
+            return 0;
+        }
+        return Math.abs(target - end) / current.growthRate();
+    }
+
+    /**
+     * Returns the direction one end faces along the wall: +1 if it is the end towards larger coordinates, -1 otherwise. The first end is taken to face the larger coordinates if both targets coincide.
+     *
+     * @param end1
+     *         Whether to take the first end rather than the second.
+     *
+     * @return The direction the end faces.
+     */
+    int getEndDirection(boolean end1) {
+        int direction = along(target1) >= along(target2) ? 1 : -1;
+        return end1 ? direction : -direction;
+    }
+
+    private double along(Coordinate coordinate) {
+        return orientation == Orientation.HORIZONTAL ? coordinate.x() : coordinate.y();
+    }
+
+    private double across(Coordinate coordinate) {
+        return orientation == Orientation.HORIZONTAL ? coordinate.y() : coordinate.x();
+    }
+
+    /**
+     * Returns the point on the line of the wall at the given coordinate along it.
+     */
+    private Coordinate pointAt(double along, Coordinate start) {
+        return orientation == Orientation.HORIZONTAL ? new Coordinate(along, start.y()) : new Coordinate(start.x(), along);
+    }
+
+    /**
+     * Determines if the first end of the wall has reached its target, that is lies exactly on it. The ends only ever move along the line of the wall, so the coordinate along it decides.
+     *
+     * @return True if the first end has reached its target, otherwise false.
+     */
+    public boolean hasReachedEnd1() {
+        return along(state.get().end1()) == along(target1);
+    }
+
+    /**
+     * Determines if the second end of the wall has reached its target, that is lies exactly on it. The ends only ever move along the line of the wall, so the coordinate along it decides.
+     *
+     * @return True if the second end has reached its target, otherwise false.
+     */
+    public boolean hasReachedEnd2() {
+        return along(state.get().end2()) == along(target2);
+    }
+
+    /**
+     * Calculates the time for the wall to become stationary.
+     *
+     * @return The time in some unit for the wall to become stationary.
+     *
+     * @see #getCompletionTime()
+     */
+    public double timeToBecomeStationary() {
+        return getCompletionTime();
+    }
+
+    /**
+     * Returns the time until every growing end has reached its target, computed once whenever the wall changes. It is zero for a wall that is not growing and infinite for one that grows at no
+     * rate.
+     *
+     * @return The time until the wall has finished growing.
+     */
+    public double getCompletionTime() {
+        return state.get().completionTime();
+    }
+
+    /**
+     * Computes the bounding box of the wall from the given ends and its orientation.
+     * <p>
+     * Along the wall the box runs between the current ends, across it the box is the 'size' property of the wall centered on the start coordinate (y if orientation is horizontal and x if
+     * orientation is vertical). As long as the start stays where it was, only the extent along the wall is computed and the extent across is taken from the previous box; if neither changed, the
+     * previous box itself is returned.
+     * </p>
+     *
+     * @return The bounding box.
+     */
+    private AABB computeBounds(State previous, Coordinate start, Coordinate end1, Coordinate end2) {
+        double minAlong = Math.min(along(end1), along(end2));
+        double maxAlong = Math.max(along(end1), along(end2));
+        if (previous != null && previous.start().x() == start.x() && previous.start().y() == start.y()) {
+            AABB bounds = previous.bounds();
+            return switch (orientation) {
+                case HORIZONTAL -> bounds.minX() == minAlong && bounds.maxX() == maxAlong ? bounds : new AABB(minAlong, bounds.minY(), maxAlong, bounds.maxY());
+                case VERTICAL -> bounds.minY() == minAlong && bounds.maxY() == maxAlong ? bounds : new AABB(bounds.minX(), minAlong, bounds.maxX(), maxAlong);
+            };
+        }
+        return switch (orientation) {
+            case HORIZONTAL -> new AABB(minAlong, start.y() - size / 2.0, maxAlong, start.y() + size / 2.0);
+            case VERTICAL -> new AABB(start.x() - size / 2.0, minAlong, start.x() + size / 2.0, maxAlong);
+        };
+    }
+
+    /**
+     * Creates the state following the given one, which is null for the first state of the wall.
+     */
+    private State createState(State previous, Coordinate start, Coordinate end1, Coordinate end2, boolean growing1, boolean growing2, double growthRate, int version) {
+        double completionTime = 0;
+        if (growing1 || growing2) {
+            double remaining = Math.max(growing1 ? Math.abs(along(target1) - along(end1)) : 0, growing2 ? Math.abs(along(target2) - along(end2)) : 0);
+            completionTime = remaining == 0 ? 0 : growthRate > 0 ? remaining / growthRate : Double.POSITIVE_INFINITY;
+        }
+        AABB bounds        = computeBounds(previous, start, end1, end2);
+        int  boundsVersion = previous == null ? 0 : previous.bounds() == bounds ? previous.boundsVersion() : previous.boundsVersion() + 1;
+        return new State(start, end1, end2, growing1, growing2, growthRate, completionTime, bounds, boundsVersion, version);
+    }
+
+    /**
+     * Publishes the state derived from the current one. The derivation is retried if another thread published in between, so it must not have side effects.
+     */
+    private void publish(UnaryOperator<State> change) {
+        state.updateAndGet(change);
+    }
+
+    /**
+     * Compares this Wall object to the specified object for equality.
+     * Two Wall objects are considered equal if all their properties are equal.
+     *
+     * @param o the object to be compared for equality with this Wall object
+     * @return true if the specified object is equal to this Wall object
+     */
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Wall  wall  = (Wall) o;
+        State mine  = state.get();
+        State other = wall.state.get();
+
+        return size == wall.size &&
+               mine.growthRate() == other.growthRate() &&
+               mine.growing() == other.growing() &&
+               mine.start().equals(other.start()) &&
+               mine.end1().equals(other.end1()) &&
+               mine.end2().equals(other.end2()) &&
+               target1.equals(wall.target1) &&
+               target2.equals(wall.target2);
+    }
+
+    /**
+     * Returns the hash code for this Wall object.
+     *
+     * @return the hash code for this Wall object
+     */
+    public int hashCode() {
+        State current = state.get();
+        return Objects.hash(
+                current.start(),
+                current.end1(),
+                current.end2(),
+                current.growing(),
+                current.growthRate(),
+                target1,
+                target2,
+                size
+        );
+    }
+
+    /**
+     * Grows the wall by the given time.
+     * <p>
+     * Each growing end moves towards its target at the growth rate and stops exactly on it if it would pass it within the time, so the wall ends up in the same place however the time is split into
+     * steps, and a single large step, for example when catching up after a pause, costs the same as a small one. Both ends move in one published state; an end that has stopped stays where it is.
+     * An end reaching its target changes the growth and so the version.
+     * </p>
+     *
+     * @param deltaTime
+     *         The time to grow by.
+     */
+    public void update(double deltaTime) {
+        publish(current -> {
+            if (!current.growing() || deltaTime <= 0) {
+                return current;
+            }
+            if (deltaTime >= current.completionTime()) {
+                // Every growing end reaches its target within the step
+                return createState(current, current.start(), current.growing1() ? target1 : current.end1(), current.growing2() ? target2 : current.end2(), false, false, current.growthRate(),
+                                   current.version() + 1);
+            }
+
+            double     step     = current.growthRate() * deltaTime;
+            Coordinate end1     = current.end1();
+            Coordinate end2     = current.end2();
+            boolean    growing1 = current.growing1();
+            boolean    growing2 = current.growing2();
+            if (growing1) {
+                growing1 = step < Math.abs(along(target1) - along(end1));
+                end1     = growing1 ? advanceEnd(end1, target1, step, current.start()) : target1;
+            }
+            if (growing2) {
+                growing2 = step < Math.abs(along(target2) - along(end2));
+                end2     = growing2 ? advanceEnd(end2, target2, step, current.start()) : target2;
+            }
+            int version = growing1 == current.growing1() && growing2 == current.growing2() ? current.version() : current.version() + 1;
+            return createState(current, current.start(), end1, end2, growing1, growing2, current.growthRate(), version);
+        });
+    }
+
+    /**
+     * Moves an end the given distance towards its target, which it must not reach.
+     */
+    private Coordinate advanceEnd(Coordinate end, Coordinate target, double distance, Coordinate start) {
+        return pointAt(along(end) + Math.signum(along(target) - along(end)) * distance, start);
+    }
+
+    /**
+     * Stops the growing end of the wall nearest to the given point at that point, after it ran into another wall or reached its target. Once both ends have stopped, the wall stops growing.
+     *
+     * @param point
+     *         The point on the line of the wall where the end stops.
+     */
+    public void stopEndAt(Coordinate point) {
+        publish(current -> {
+            if (!current.growing()) {
+                return current;
+            }
+            double  at     = along(point);
+            boolean isEnd1 = current.growing1() && (!current.growing2() || Math.abs(along(current.end1()) - at) <= Math.abs(along(current.end2()) - at));
+            Coordinate end = pointAt(along(point), current.start());
+            return isEnd1
+                   ? createState(current, current.start(), end, current.end2(), false, current.growing2(), current.growthRate(), current.version() + 1)
+                   : createState(current, current.start(), current.end1(), end, current.growing1(), false, current.growthRate(), current.version() + 1);
+        });
+    }
+
+    /**
+     * Stops the growing end that an object at the given point lies beyond, where the end is now, after the object touched it. A ball touching a wall beyond one of its ends can only have touched the
+     * face or a corner of that end; one between the ends touched a long side, which leaves the growth alone.
+     * <p>
+     * A ball bounces off a moving end faster than it came, so an end that kept growing into a ball with another wall behind it would bounce it back and forth ever faster in ever shorter time. The
+     * end stops where the ball met it instead, and the wall is left unfinished on that side.
+     * </p>
+     *
+     * @param point
+     *         The point the object is at, usually the centre of a ball.
+     */
+    public void stopEndTouching(Coordinate point) {
+        double at = along(point);
+        publish(current -> {
+            boolean stop1 = current.growing1() && getEndDirection(true) * (at - along(current.end1())) > 0;
+            boolean stop2 = current.growing2() && getEndDirection(false) * (at - along(current.end2())) > 0;
+            if (!stop1 && !stop2) {
+                return current;
+            }
+            return createState(current, current.start(), current.end1(), current.end2(), current.growing1() && !stop1, current.growing2() && !stop2, current.growthRate(),
+                               current.version() + 1);
+        });
+    }
+
+    /**
+     * Predicts when the first end of this wall runs into another wall.
+     *
+     * @param otherWall
+     *         The wall the end may run into.
+     *
+     * @return The time and point at which the end stops, or empty if it reaches its target first or never meets the other wall.
+     *
+     * @see #willCollideWithWallEnd(boolean, Wall)
+     */
+    public Optional<CollisionDetail<Wall, Wall>> willCollideWithWallEnd1(Wall otherWall) {
+        return willCollideWithWallEnd(true, otherWall);
+    }
+
+    /**
+     * Predicts when the second end of this wall runs into another wall.
+     *
+     * @param otherWall
+     *         The wall the end may run into.
+     *
+     * @return The time and point at which the end stops, or empty if it reaches its target first or never meets the other wall.
+     *
+     * @see #willCollideWithWallEnd(boolean, Wall)
+     */
+    public Optional<CollisionDetail<Wall, Wall>> willCollideWithWallEnd2(Wall otherWall) {
+        return willCollideWithWallEnd(false, otherWall);
+    }
+
+    /**
+     * Predicts when the first end of this wall reaches its target, where it meets {@link #end1CollideInto} if it has one.
+     *
+     * @return The time and point at which the end stops, or empty if it is not moving.
+     */
+    public Optional<CollisionDetail<Wall, Wall>> willReachTarget1() {
+        return willReachTarget(true, target1, end1CollideInto);
+    }
+
+    /**
+     * Predicts when the second end of this wall reaches its target, where it meets {@link #end2CollideInto} if it has one.
+     *
+     * @return The time and point at which the end stops, or empty if it is not moving.
+     */
+    public Optional<CollisionDetail<Wall, Wall>> willReachTarget2() {
+        return willReachTarget(false, target2, end2CollideInto);
+    }
+
+    /**
+     * Returns the wall the given end is meant to collide into once it reaches its target.
+     *
+     * @param end1
+     *         Whether to take the first end rather than the second.
+     *
+     * @return The wall, or null if there is none.
+     */
+    public Wall getCollideInto(boolean end1) {
+        return end1 ? end1CollideInto : end2CollideInto;
+    }
+
+    private Optional<CollisionDetail<Wall, Wall>> willReachTarget(boolean isEnd1, Coordinate target, Wall collideInto) {
+        State current = state.get();
+        if (getEndVelocity(current, isEnd1) == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new CollisionDetail<>(getEndStopTime(current, isEnd1), target.x(), target.y(), this, collideInto != null ? collideInto : this));
+    }
+
+    /**
+     * Predicts when a growing end of this wall runs into another wall, in closed form.
+     * <p>
+     * A wall across the path of the end stops it at the near side of its thickness, provided the other wall then spans the thickness of this one; the other wall may itself be growing, so its
+     * extent is taken at that time. A wall on the same line stops it where it meets the facing end of the other wall, which may be growing towards it until that end stops in turn. Only contacts
+     * before the end reaches its target count; reaching the target is predicted by {@link #willReachTarget1()} and {@link #willReachTarget2()}.
+     * </p>
+     *
+     * @param isEnd1
+     *         Whether to predict the first end rather than the second.
+     * @param otherWall
+     *         The wall the end may run into.
+     *
+     * @return The time and point at which the end stops, or empty if it does not run into the other wall.
+     */
+    private Optional<CollisionDetail<Wall, Wall>> willCollideWithWallEnd(boolean isEnd1, Wall otherWall) {
+        // Work from one snapshot of each wall, so that neither can change halfway through the prediction
+        State  current  = state.get();
+        double velocity = getEndVelocity(current, isEnd1);
+        if (velocity == 0 || otherWall == this) {
+            return Optional.empty();
+        }
+        State      other     = otherWall.state.get();
+        Coordinate start     = current.start();
+        double     speed     = Math.abs(velocity);
+        double     direction = getEndDirection(isEnd1);
+        double     tip       = getEndPosition(current, isEnd1);
+        double     center    = across(start);
+        double     halfSize  = size / 2.0;
+
+        double time;
+        if (otherWall.orientation != orientation) {
+            // Across the path: the coordinate across the other wall is the coordinate along this one
+            double face = otherWall.across(other.start()) - direction * otherWall.size / 2.0;
+            time = calculateTimeToContact(direction * (face - tip), speed);
+            if (time < 0) {
+                return Optional.empty();
+            }
+            double otherEnd1 = otherWall.getEndPosition(other, true, time);
+            double otherEnd2 = otherWall.getEndPosition(other, false, time);
+            if (Math.max(otherEnd1, otherEnd2) < center - halfSize || Math.min(otherEnd1, otherEnd2) > center + halfSize) {
+                return Optional.empty();
+            }
+        } else {
+            // On the same line: the facing end of the other wall points the other way
+            if (Math.abs(across(other.start()) - center) >= halfSize + otherWall.size / 2.0) {
+                return Optional.empty();
+            }
+            boolean facingEnd1   = otherWall.getEndDirection(true) != direction;
+            double  gap          = direction * (otherWall.getEndPosition(other, facingEnd1) - tip);
+            double  closingSpeed = speed - direction * otherWall.getEndVelocity(other, facingEnd1);
+            double  facingStop   = otherWall.getEndStopTime(other, facingEnd1);
+            time = calculateTimeToContact(gap, closingSpeed);
+            if (time > facingStop) {
+                // The facing end stops first, after which the gap only closes as fast as this end moves
+                time = facingStop + calculateTimeToContact(gap - closingSpeed * facingStop, speed);
+            }
+            if (time < 0) {
+                return Optional.empty();
+            }
+        }
+
+        if (time > getEndStopTime(current, isEnd1)) {
+            return Optional.empty();
+        }
+        Coordinate point = pointAt(tip + velocity * time, start);
+        return Optional.of(new CollisionDetail<>(time, point.x(), point.y(), this, otherWall));
+    }
+
+    /**
+     * Calculates the time until a gap that closes at the given speed is closed, treating a gap closed within {@link Ball#CONTACT_TOLERANCE} as closed now.
+     *
+     * @return The time until the gap is closed, infinite if it never closes, or -1 if it was closed already.
+     */
+    private static double calculateTimeToContact(double gap, double closingSpeed) {
+        if (gap < -Ball.CONTACT_TOLERANCE) {
+            return -1.0;
+        }
+        if (gap <= 0) {
+            return 0;
+        }
+        return closingSpeed > 0 ? gap / closingSpeed : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * An immutable snapshot of everything about a wall that changes. Other classes only take it from {@link Wall#getState()} to hand it back to the methods of the same wall.
+     *
+     * @param start
+     *         The starting coordinate
+     * @param end1
+     *         The current first end
+     * @param end2
+     *         The current second end
+     * @param growing1
+     *         Whether the first end is still growing
+     * @param growing2
+     *         Whether the second end is still growing
+     * @param growthRate
+     *         The rate at which the ends move
+     * @param completionTime
+     *         The time until every growing end has reached its target
+     * @param bounds
+     *         The bounding box
+     * @param boundsVersion
+     *         Bumped whenever the bounding box changes
+     * @param version
+     *         Bumped whenever the growth changes
+     */
+    record State(Coordinate start, Coordinate end1, Coordinate end2, boolean growing1, boolean growing2, double growthRate, double completionTime, AABB bounds,
+                         int boundsVersion, int version) {
+        boolean growing() {
+            return growing1 || growing2;
+        }
+
+        boolean growing(boolean end1) {
+            return end1 ? growing1 : growing2;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+module com.games.jezzball.engine {
+    requires static jdk.incubator.vector;  // Optional, the narrow-phase falls back to scalar code without it
+
+    exports com.games.jezzball.games.files2;
+}
@@ -0,0 +1,131 @@
+package com.games.jezzball.games.files2;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs worlds whose updates throw or never return on an {@link ArenaHost}, and checks that the host reports them and gets rid of them without waiting for them.
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+class ArenaHostTest {
+    private static final Duration TICK       = Duration.ofMillis(5);
+    private static final Duration BUDGET     = Duration.ofMillis(50);
+    private static final Duration HANG_LIMIT = Duration.ofMillis(200);
+    private static final Duration TIME_LIMIT = Duration.ofSeconds(10);
+
+    @Test
+    void updateThatThrowsFailsItsArena() {
+        RuntimeException failure = new IllegalStateException("Broken world");
+        try (ArenaHost host = host()) {
+            ArenaHost.Arena healthy = host.add(new World(-1, failure, null));
+            ArenaHost.Arena broken  = host.add(new World(3, failure, null));
+
+            assertTimeoutPreemptively(TIME_LIMIT, () -> awaitFinal(broken));
+            assertEquals(ArenaHost.Status.FAILED, broken.getStats().status());
+            assertEquals(3, broken.getStats().ticks());
+            assertSame(failure, broken.getFailure());
+            assertEquals(1, host.size());
+            assertTrue(host.getArenas().contains(healthy));
+            assertEquals(ArenaHost.Status.RUNNING, healthy.getStats().status());
+            assertNull(healthy.getFailure());
+        }
+    }
+
+    @Test
+    void updateThatNeverReturnsIsShed() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        try (ArenaHost host = host()) {
+            ArenaHost.Arena hung = host.add(new World(2, null, release));
+
+            assertTimeoutPreemptively(TIME_LIMIT, () -> awaitFinal(hung));
+            assertEquals(ArenaHost.Status.SHED, hung.getStats().status());
+            assertEquals(2, hung.getStats().ticks());
+            assertEquals(0, host.size());
+
+            // Whatever the update does once it returns is discarded
+            release.countDown();
+            Thread.sleep(HANG_LIMIT.toMillis());
+            assertEquals(ArenaHost.Status.SHED, hung.getStats().status());
+            assertEquals(2, hung.getStats().ticks());
+            assertEquals(0, host.size());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void closeDoesNotWaitForAnUpdateThatNeverReturns() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            ArenaHost       host  = host();
+            World           world = new World(0, null, release);
+            ArenaHost.Arena hung  = host.add(world);
+            world.blocked.await();
+
+            long start = System.nanoTime();
+            assertTimeoutPreemptively(TIME_LIMIT, host::close);
+            assertTrue(System.nanoTime() - start < 2 * HANG_LIMIT.toNanos(), "Closing waited for the hung update");
+            assertTrue(hung.getStats().status().isFinal());
+            assertEquals(0, host.size());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * A world that counts its updates, and once it has run a given number of them throws the given exception or blocks, ignoring interrupts, until released.
+     */
+    private static final class World extends Collision {
+        private final int              healthyTicks;
+        private final RuntimeException failure;
+        private final CountDownLatch   release;
+        private final CountDownLatch   blocked = new CountDownLatch(1);
+        private int                    ticks;
+
+        World(int healthyTicks, RuntimeException failure, CountDownLatch release) {
+            super(0, 0, 1.0);
+            this.healthyTicks = healthyTicks;
+            this.failure      = failure;
+            this.release      = release;
+        }
+
+        @Override
+        public void update(double deltaTime) {
+            if (ticks++ != healthyTicks) {
+                return;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            blocked.countDown();
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // Keeps blocking, like an update that does not check for interrupts
+                }
+            }
+        }
+    }
+
+    private static ArenaHost host() {
+        return new ArenaHost(TICK, BUDGET, HANG_LIMIT, Thread.ofVirtual()
+                                                             .factory());
+    }
+
+    private static void awaitFinal(ArenaHost.Arena arena) throws InterruptedException {
+        while (!arena.getStats().status().isFinal()) {
+            Thread.sleep(1);
+        }
+    }
+}
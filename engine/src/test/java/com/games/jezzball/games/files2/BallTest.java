@@ -0,0 +1,187 @@
+package com.games.jezzball.games.files2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link Ball#calculateTimeToWall(Wall, double[])} against a brute-force search that steps the ball and the ends of the wall through time and measures the distance to the box of the wall,
+ * and that elastic collisions conserve kinetic energy.
+ *
+ * @author Colin Jokisch
+ * @version 1.2
+ */
+class BallTest {
+    private static final int    CASES     = 1_500;
+    private static final double HORIZON   = 10;
+    private static final double STEP      = 1e-3;
+    private static final double TOLERANCE = 1e-7;
+
+    @Test
+    void timeToWallIsTheFirstContactFoundByStepping() {
+        SplittableRandom random   = new SplittableRandom(1);
+        int              contacts = 0;
+        for (int i = 0; i < CASES; i++) {
+            Wall wall = randomWall(random);
+            Ball ball = randomBallClearOf(wall, random);
+            if (check(ball, wall)) {
+                contacts++;
+            }
+        }
+        assertTrue(contacts > CASES / 10, () -> "Too few of the random cases collide to tell anything");
+    }
+
+    @Test
+    void ballLeavingAWallItTouchesDoesNotCollide() {
+        Wall wall = new Wall(new Coordinate(100, 50), 4, 0, false, new Coordinate(200, 50), new Coordinate(0, 50), null, null);
+        Ball ball = Ball.withVelocity(new Coordinate(100, 55), 3, 10, 3, 1);  // Touching the lower side and moving down
+        assertEquals(Double.POSITIVE_INFINITY, ball.calculateTimeToWall(wall, new double[2]));
+    }
+
+    @Test
+    void elasticBallCollisionsConserveEnergyAndMomentum() {
+        SplittableRandom random = new SplittableRandom(2);
+        for (int i = 0; i < CASES; i++) {
+            // Two balls of different masses that touch and approach each other
+            double angle  = random.nextDouble(2 * Math.PI);
+            double reach  = random.nextDouble(2, 8) + random.nextDouble(2, 8);
+            Ball   first  = Ball.withVelocity(new Coordinate(500, 500), random.nextDouble(-50, 50), random.nextDouble(-50, 50), reach / 2, random.nextDouble(0.5, 5));
+            Ball   second = Ball.withVelocity(new Coordinate(500 + reach * Math.cos(angle), 500 + reach * Math.sin(angle)), random.nextDouble(-50, 50), random.nextDouble(-50, 50), reach / 2,
+                                             random.nextDouble(0.5, 5));
+            // Turn a separating pair round, so that the impulse applies
+            if ((second.getVx() - first.getVx()) * Math.cos(angle) + (second.getVy() - first.getVy()) * Math.sin(angle) > 0) {
+                second.setVelocity(-second.getVx(), -second.getVy());
+                first.setVelocity(-first.getVx(), -first.getVy());
+            }
+            double energy    = energy(first) + energy(second);
+            double momentumX = first.getMass() * first.getVx() + second.getMass() * second.getVx();
+            double momentumY = first.getMass() * first.getVy() + second.getMass() * second.getVy();
+
+            first.resolveCollision(second);
+            assertEquals(energy, energy(first) + energy(second), 1e-12 * energy);
+            assertEquals(momentumX, first.getMass() * first.getVx() + second.getMass() * second.getVx(), 1e-9);
+            assertEquals(momentumY, first.getMass() * first.getVy() + second.getMass() * second.getVy(), 1e-9);
+        }
+    }
+
+    @Test
+    void elasticWallBouncesConserveEnergy() {
+        SplittableRandom random  = new SplittableRandom(3);
+        double[]         contact = new double[2];
+        int              bounces = 0;
+        while (bounces < CASES) {
+            // A stationary wall, hit on a long side, an end or a corner
+            Wall   wall = new Wall(new Coordinate(500, 500), random.nextDouble(2, 8), 0, false, new Coordinate(600, 500), new Coordinate(400, 500), null, null);
+            Ball   ball = randomBallClearOf(wall, random);
+            double time = ball.calculateTimeToWall(wall, contact);
+            if (time > HORIZON) {
+                continue;
+            }
+            double energy = energy(ball);
+            ball.advance(time);
+            ball.bounceOffWall(wall, contact[0], contact[1]);
+            assertEquals(energy, energy(ball), 1e-12 * energy);
+            bounces++;
+        }
+    }
+
+    /**
+     * Compares the prediction for one ball and wall with stepping, returning whether they touch within the horizon.
+     */
+    private static boolean check(Ball ball, Wall wall) {
+        double[] contact   = new double[2];
+        double   predicted = ball.calculateTimeToWall(wall, contact);
+        double   radius    = ball.getRadius();
+        String   name      = describe(ball, wall, predicted);
+
+        // No sample before the predicted time may penetrate the wall, and the first one that does may not come before it
+        for (double time = 0; time <= Math.min(predicted, HORIZON); time += STEP) {
+            double distance = distance(ball, wall, time);
+            if (time < predicted) {
+                assertTrue(distance >= radius - TOLERANCE, () -> name + ": penetrates before the predicted time");
+            }
+        }
+        if (predicted > HORIZON) {
+            return false;
+        }
+
+        // At the predicted time the ball touches the wall, at the reported point
+        assertEquals(radius, distance(ball, wall, predicted), TOLERANCE * (1 + predicted), name);
+        double x = ball.getPosition().x() + ball.getVx() * predicted;
+        double y = ball.getPosition().y() + ball.getVy() * predicted;
+        assertEquals(radius, Math.hypot(contact[0] - x, contact[1] - y), TOLERANCE * (1 + predicted), () -> name + ": contact point");
+        return true;
+    }
+
+    /**
+     * The distance from the center of the ball to the box of the wall after the given time, with the ends of the wall moved independently of {@link Wall}.
+     */
+    private static double distance(Ball ball, Wall wall, double time) {
+        boolean horizontal = wall.getOrientation() == Wall.Orientation.HORIZONTAL;
+        double  x          = ball.getPosition().x() + ball.getVx() * time;
+        double  y          = ball.getPosition().y() + ball.getVy() * time;
+        double  along      = horizontal ? x : y;
+        double  across     = horizontal ? y : x;
+        double  center     = horizontal ? wall.getPosition().y() : wall.getPosition().x();
+        double  end1       = endAt(wall, wall.getCurrentEnd1(), wall.getTarget1(), time);
+        double  end2       = endAt(wall, wall.getCurrentEnd2(), wall.getTarget2(), time);
+        double  outAlong   = Math.max(0, Math.max(Math.min(end1, end2) - along, along - Math.max(end1, end2)));
+        double  outAcross  = Math.max(0, Math.abs(across - center) - wall.getSize() / 2);
+        return Math.hypot(outAlong, outAcross);
+    }
+
+    private static double endAt(Wall wall, Coordinate end, Coordinate target, double time) {
+        boolean horizontal = wall.getOrientation() == Wall.Orientation.HORIZONTAL;
+        double  from       = horizontal ? end.x() : end.y();
+        double  to         = horizontal ? target.x() : target.y();
+        double  travel     = wall.isGrowing() ? wall.getGrowthRate() * time : 0;
+        return Math.abs(to - from) <= travel ? to : from + Math.signum(to - from) * travel;
+    }
+
+    /**
+     * Creates a wall that is stationary or grows from a point, across the middle of a 1000 by 1000 arena.
+     */
+    private static Wall randomWall(SplittableRandom random) {
+        boolean    horizontal = random.nextBoolean();
+        double     fixed      = random.nextDouble(300, 700);
+        double     start      = random.nextDouble(300, 700);
+        double     high       = start + random.nextDouble(10, 300);
+        double     low        = start - random.nextDouble(10, 300);
+        boolean    growing    = random.nextBoolean();
+        Coordinate target1    = horizontal ? new Coordinate(high, fixed) : new Coordinate(fixed, high);
+        Coordinate target2    = horizontal ? new Coordinate(low, fixed) : new Coordinate(fixed, low);
+        return new Wall(horizontal ? new Coordinate(start, fixed) : new Coordinate(fixed, start), random.nextDouble(2, 8), growing ? 1 + random.nextInt(60) : 0, growing, target1, target2,
+                        null, null);
+    }
+
+    /**
+     * Creates a ball near the wall that does not touch it, mostly aimed at some point of the wall or of its path.
+     */
+    private static Ball randomBallClearOf(Wall wall, SplittableRandom random) {
+        while (true) {
+            double radius = random.nextDouble(2, 8);
+            double x      = random.nextDouble(100, 900);
+            double y      = random.nextDouble(100, 900);
+            double speed  = random.nextDouble(1, 120);
+            double aimX   = random.nextDouble(Math.min(wall.getTarget1().x(), wall.getTarget2().x()) - 20, Math.max(wall.getTarget1().x(), wall.getTarget2().x()) + 20);
+            double aimY   = random.nextDouble(Math.min(wall.getTarget1().y(), wall.getTarget2().y()) - 20, Math.max(wall.getTarget1().y(), wall.getTarget2().y()) + 20);
+            double angle  = random.nextInt(4) == 0 ? random.nextDouble(2 * Math.PI) : Math.atan2(aimY - y, aimX - x);
+            Ball   ball   = Ball.withVelocity(new Coordinate(x, y), speed * Math.cos(angle), speed * Math.sin(angle), radius, 1);
+            if (distance(ball, wall, 0) > radius + 1e-3) {
+                return ball;
+            }
+        }
+    }
+
+    private static double energy(Ball ball) {
+        return 0.5 * ball.getMass() * (ball.getVx() * ball.getVx() + ball.getVy() * ball.getVy());
+    }
+
+    private static String describe(Ball ball, Wall wall, double predicted) {
+        return "ball " + ball.getPosition() + " v=(" + ball.getVx() + ", " + ball.getVy() + ") r=" + ball.getRadius() + ", wall " + wall.getPosition() + " " + wall.getOrientation() + " ends "
+               + wall.getCurrentEnd1() + " " + wall.getCurrentEnd2() + " targets " + wall.getTarget1() + " " + wall.getTarget2() + " rate " + wall.getGrowthRate() + ", predicted " + predicted;
+    }
+}
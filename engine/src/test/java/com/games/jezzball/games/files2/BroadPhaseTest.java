@@ -0,0 +1,181 @@
+package com.games.jezzball.games.files2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every {@link BroadPhaseType} through random sequences of inserts, moves, removals and range queries of balls and walls, and checks every query against a linear scan of the indexed objects.
+ *
+ * @author Colin Jokisch
+ * @version 1.5
+ */
+class BroadPhaseTest {
+    private static final double    ARENA_SIZE = 1000;
+    private static final double    MAX_RADIUS = 5;
+    private static final Rectangle ARENA      = new Rectangle(0, 0, ARENA_SIZE, ARENA_SIZE);
+    private static final int       OPERATIONS = 20_000;
+
+    @Test
+    void queriesMatchALinearScan() {
+        for (BroadPhaseType type : BroadPhaseType.values()) {
+            for (long seed = 1; seed <= 3; seed++) {
+                run(type.create(ARENA, MAX_RADIUS), new SplittableRandom(seed), type + " seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    void insertingTwiceUpdatesAndClearForgetsEverything() {
+        for (BroadPhaseType type : BroadPhaseType.values()) {
+            BroadPhase broadPhase = type.create(ARENA, MAX_RADIUS);
+            Ball       ball       = new Ball(new Coordinate(100, 100), 1, 0, MAX_RADIUS, 1);
+            broadPhase.insert(ball);
+            ball.setPosition(new Coordinate(900, 900));
+            broadPhase.insert(ball);  // Behaves like an update
+            assertEquals(1, broadPhase.size(), type::toString);
+            assertEquals(1, broadPhase.queryRange(850, 850, 950, 950, Ball.class).size(), type::toString);
+            assertTrue(broadPhase.queryRange(50, 50, 150, 150, Ball.class).isEmpty(), type::toString);
+
+            broadPhase.clear();
+            assertEquals(0, broadPhase.size(), type::toString);
+            assertTrue(broadPhase.queryRange(0, 0, ARENA_SIZE, ARENA_SIZE, Ball.class).isEmpty(), type::toString);
+            assertFalse(broadPhase.remove(ball), type::toString);
+            assertThrows(IllegalArgumentException.class, () -> broadPhase.update(ball), type::toString);
+        }
+    }
+
+    @Test
+    void emptyCopyStartsEmpty() {
+        for (BroadPhaseType type : BroadPhaseType.values()) {
+            BroadPhase broadPhase = type.create(ARENA, MAX_RADIUS);
+            broadPhase.insert(new Ball(new Coordinate(100, 100), 1, 0, MAX_RADIUS, 1));
+
+            BroadPhase copy = broadPhase.emptyCopy();
+            assertEquals(0, copy.size(), type::toString);
+            assertTrue(copy.queryRange(0, 0, ARENA_SIZE, ARENA_SIZE, Ball.class).isEmpty(), type::toString);
+            assertEquals(1, broadPhase.size(), type::toString);
+        }
+    }
+
+    private static void run(BroadPhase broadPhase, SplittableRandom random, String name) {
+        List<Ball> balls = new ArrayList<>();
+        List<Wall> walls = new ArrayList<>();
+        for (int step = 0; step < OPERATIONS; step++) {
+            int operation = random.nextInt(100);
+            if (operation < 20) {
+                Ball ball = randomBall(random);
+                broadPhase.insert(ball);
+                balls.add(ball);
+            } else if (operation < 25) {
+                Wall wall = randomWall(random);
+                broadPhase.insert(wall);
+                walls.add(wall);
+            } else if (operation < 45 && !balls.isEmpty()) {
+                // Moves a ball, far or by a little
+                Ball   ball  = balls.get(random.nextInt(balls.size()));
+                double reach = random.nextBoolean() ? ARENA_SIZE : 2 * MAX_RADIUS;
+                double x     = clamp(ball.getPosition().x() + random.nextDouble(-reach, reach), ball.getRadius());
+                double y     = clamp(ball.getPosition().y() + random.nextDouble(-reach, reach), ball.getRadius());
+                ball.setPosition(new Coordinate(x, y));
+                broadPhase.update(ball);
+            } else if (operation < 50 && !walls.isEmpty()) {
+                Wall wall = walls.get(random.nextInt(walls.size()));
+                wall.update(random.nextDouble(2));
+                broadPhase.update(wall);
+            } else if (operation < 60 && !balls.isEmpty()) {
+                assertTrue(broadPhase.remove(balls.remove(random.nextInt(balls.size()))), name);
+            } else if (operation < 62 && !walls.isEmpty()) {
+                assertTrue(broadPhase.remove(walls.remove(random.nextInt(walls.size()))), name);
+            } else {
+                query(broadPhase, random, balls, walls, name);
+            }
+            assertEquals(balls.size() + walls.size(), broadPhase.size(), name);
+        }
+    }
+
+    private static void query(BroadPhase broadPhase, SplittableRandom random, List<Ball> balls, List<Wall> walls, String name) {
+        double extent = random.nextBoolean() ? 4 * MAX_RADIUS : ARENA_SIZE / 2;
+        double x1     = random.nextDouble(-extent, ARENA_SIZE);
+        double y1     = random.nextDouble(-extent, ARENA_SIZE);
+        double x2     = x1 + random.nextDouble(extent);
+        double y2     = y1 + random.nextDouble(extent);
+
+        assertSameObjects(scan(balls, x1, y1, x2, y2), broadPhase.queryRange(x1, y1, x2, y2, Ball.class), name);
+        assertSameObjects(scan(walls, x1, y1, x2, y2), broadPhase.queryRange(x1, y1, x2, y2, Wall.class), name);
+
+        // The variants that report through a sink or append to a buffer find the same objects of every kind
+        List<SpatialObject> everything = new ArrayList<>(balls);
+        everything.addAll(walls);
+        List<SpatialObject> found = new ArrayList<>();
+        int                 count = broadPhase.queryRange(new Rectangle(x1, y1, x2 - x1, y2 - y1), SpatialObject.class, found::add);
+        assertEquals(found.size(), count, name);
+        assertSameObjects(scan(everything, x1, y1, x2, y2), found, name);
+
+        List<Ball> buffer   = new ArrayList<>(List.of(randomBall(random)));  // Kept, since the buffer is appended to
+        int        appended = broadPhase.queryRange(x1, y1, x2, y2, Ball.class, buffer);
+        assertEquals(buffer.size() - 1, appended, name);
+        assertSameObjects(scan(balls, x1, y1, x2, y2), buffer.subList(1, buffer.size()), name);
+    }
+
+    /**
+     * The reference: every object whose own intersection test accepts the box.
+     */
+    private static <T extends SpatialObject> List<T> scan(List<T> objects, double x1, double y1, double x2, double y2) {
+        List<T> result = new ArrayList<>();
+        for (T object : objects) {
+            if (object.intersects(x1, y1, x2, y2)) {
+                result.add(object);
+            }
+        }
+        return result;
+    }
+
+    private static void assertSameObjects(List<? extends SpatialObject> expected, List<? extends SpatialObject> actual, String name) {
+        Set<SpatialObject> expectedSet = identitySet(expected);
+        Set<SpatialObject> actualSet   = identitySet(actual);
+        assertEquals(actual.size(), actualSet.size(), () -> name + ": an object was reported twice");
+        assertEquals(expectedSet, actualSet, name);
+    }
+
+    private static Set<SpatialObject> identitySet(List<? extends SpatialObject> objects) {
+        Set<SpatialObject> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(objects);
+        return set;
+    }
+
+    private static Ball randomBall(SplittableRandom random) {
+        double radius = random.nextDouble(1, MAX_RADIUS);
+        return new Ball(new Coordinate(clamp(random.nextDouble(ARENA_SIZE), radius), clamp(random.nextDouble(ARENA_SIZE), radius)), 1, random.nextDouble(2 * Math.PI), radius, 1);
+    }
+
+    /**
+     * Creates a stationary wall or one growing from a point, short or spanning much of the arena.
+     */
+    private static Wall randomWall(SplittableRandom random) {
+        boolean    horizontal = random.nextBoolean();
+        double     fixed      = random.nextDouble(10, ARENA_SIZE - 10);
+        double     low        = random.nextDouble(10, ARENA_SIZE / 2);
+        double     high       = random.nextDouble(low + 1, random.nextBoolean() ? low + 50 : ARENA_SIZE - 10);
+        double     middle     = (low + high) / 2;
+        Coordinate target1    = horizontal ? new Coordinate(high, fixed) : new Coordinate(fixed, high);
+        Coordinate target2    = horizontal ? new Coordinate(low, fixed) : new Coordinate(fixed, low);
+        Coordinate start      = horizontal ? new Coordinate(middle, fixed) : new Coordinate(fixed, middle);
+        boolean    growing    = random.nextBoolean();
+        return new Wall(start, 4, growing ? 1 + random.nextInt(50) : 0, growing, target1, target2, null, null);
+    }
+
+    private static double clamp(double value, double radius) {
+        return Math.max(radius, Math.min(ARENA_SIZE - radius, value));
+    }
+}
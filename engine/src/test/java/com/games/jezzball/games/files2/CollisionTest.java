@@ -0,0 +1,172 @@
+package com.games.jezzball.games.files2;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs small arenas through {@link Collision} and checks what a player would see.
+ *
+ * @author Colin Jokisch
+ * @version 1.4
+ */
+class CollisionTest {
+    private static final double   ARENA_SIZE = 600;
+    private static final double   TICK       = 0.05;
+    private static final Duration TIME_LIMIT = Duration.ofSeconds(10);
+
+    @Test
+    void growingEndStopsAtABallInsteadOfPinchingIt() {
+        pinch(false);
+    }
+
+    @Test
+    void growingEndStopsAtABallInDeterministicMode() {
+        pinch(true);
+    }
+
+    /**
+     * Grows the lower end of a wall down onto a ball that slowly climbs towards it from just above the bottom wall, and checks that the end stops at the ball.
+     */
+    private static void pinch(boolean deterministic) {
+        Collision collision = arena();
+        Wall      bottom    = border(collision, true, ARENA_SIZE - 10);
+        Wall      top       = border(collision, true, 10);
+        border(collision, false, 10);
+        border(collision, false, ARENA_SIZE - 10);
+        Wall growing = new Wall(new Coordinate(300, 300), 4, 20, true, new Coordinate(300, ARENA_SIZE - 12), new Coordinate(300, 12), bottom, top);
+        Ball ball    = new Ball(new Coordinate(301, 560), 1, -Math.PI / 2, 3, 1);
+        collision.addWall(growing);
+        collision.addBall(ball);
+        collision.setDeterministic(deterministic);
+
+        assertTimeoutPreemptively(TIME_LIMIT, () -> {
+            for (int tick = 0; tick < 2_000; tick++) {
+                collision.update(TICK);
+            }
+        });
+        assertFalse(growing.hasReachedEnd1());
+        assertTrue(growing.hasReachedEnd2());
+        assertFalse(growing.isGrowing());
+
+        // The ball goes on bouncing between the stopped end and the bottom wall at its own speed
+        double y = ball.getPosition().y();
+        assertEquals(1, ball.getSpeed(), 1e-6);
+        assertTrue(y - ball.getRadius() >= growing.getCurrentEnd1().y() - 1e-6 && y + ball.getRadius() <= ARENA_SIZE - 12 + 1e-6, () -> "Ball escaped to " + ball.getPosition());
+    }
+
+    @Test
+    void eachGrowingEndKeepsOneScheduledStop() {
+        Collision collision = arena();
+        Wall      left      = border(collision, false, 10);
+        Wall      right     = border(collision, false, ARENA_SIZE - 10);
+        border(collision, true, 10);
+        border(collision, true, ARENA_SIZE - 10);
+
+        // A slow wall grows all along, while a row of short walls just above its path stops one after another, each stop predicting the slow wall again
+        List<Wall> growing = new ArrayList<>();
+        growing.add(new Wall(new Coordinate(300, 300), 4, 1, true, new Coordinate(ARENA_SIZE - 12, 300), new Coordinate(12, 300), right, left));
+        for (int k = 0; k < 100; k++) {
+            double x      = 20 + 5.5 * k;
+            double length = 1 + 0.4 * k;
+            growing.add(new Wall(new Coordinate(x, 297 - length), 4, 1, true, new Coordinate(x, 297), new Coordinate(x, 297 - 2 * length), null, null));
+        }
+        growing.forEach(collision::addWall);
+
+        for (int tick = 0; tick < 1_000; tick++) {
+            collision.update(TICK);
+            long ends = growing.stream().filter(Wall::isGrowing).count() * 2;
+            assertTrue(collision.getPendingCount() <= ends, "Tick " + tick + ": " + collision.getPendingCount() + " events pending for " + ends + " growing ends");
+        }
+        assertEquals(1, growing.stream().filter(Wall::isGrowing).count());
+    }
+
+    @Test
+    void endStoppedByABallLetsTheWallGrowingIntoItGrowOn() {
+        Collision collision = arena();
+        Wall      bottom    = border(collision, true, ARENA_SIZE - 10);
+        Wall      top       = border(collision, true, 10);
+        Wall      left      = border(collision, false, 10);
+        Wall      right     = border(collision, false, ARENA_SIZE - 10);
+        Wall      middle    = new Wall(new Coordinate(450, ARENA_SIZE / 2), 4, 0, false, new Coordinate(450, ARENA_SIZE - 12), new Coordinate(450, 12), null, null);
+        collision.addWall(middle);
+
+        // The lower end of the vertical wall would cross the path of the horizontal one before it gets there, but a ball stops it well short of that
+        Wall vertical   = new Wall(new Coordinate(300, 300), 4, 20, true, new Coordinate(300, ARENA_SIZE - 12), new Coordinate(300, 12), bottom, top);
+        Wall horizontal = new Wall(new Coordinate(100, 500), 4, 10, true, new Coordinate(ARENA_SIZE - 12, 500), new Coordinate(100, 500), right, left);
+        Ball ball       = new Ball(new Coordinate(301, 420), 1, -Math.PI / 2, 3, 1);
+        collision.addWall(vertical);
+        collision.addWall(horizontal);
+        collision.addBall(ball);
+
+        for (int tick = 0; tick < 2_000; tick++) {
+            collision.update(TICK);
+        }
+        assertFalse(vertical.hasReachedEnd1());
+        assertTrue(vertical.getCurrentEnd1().y() < 500);
+
+        // The horizontal wall grows past the vertical one and stops at the middle wall instead
+        assertFalse(horizontal.isGrowing());
+        assertFalse(horizontal.hasReachedEnd1());
+        assertEquals(448, horizontal.getCurrentEnd1().x(), 1e-9);
+    }
+
+    @Test
+    void elasticArenaConservesKineticEnergy() {
+        Collision collision = arena();
+        Wall      left      = border(collision, false, 10);
+        Wall      right     = border(collision, false, ARENA_SIZE - 10);
+        border(collision, true, 10);
+        border(collision, true, ARENA_SIZE - 10);
+        collision.addWall(new Wall(new Coordinate(300, 300), 4, 10, true, new Coordinate(ARENA_SIZE - 12, 300), new Coordinate(12, 300), right, left));
+
+        // Balls of different masses, bouncing off each other, the borders and the growing wall, which stops where a ball touches one of its ends
+        Random     random = new Random(5);
+        List<Ball> balls  = new ArrayList<>();
+        for (int k = 0; k < 80; k++) {
+            Ball ball = new Ball(new Coordinate(30 + (k % 10) * 60, 30 + (k / 10) * 60 + (k / 10 >= 4 ? 40 : 0)), 20 + random.nextDouble() * 40, random.nextDouble() * 2 * Math.PI, 3,
+                                 1 + random.nextInt(4));
+            balls.add(ball);
+            collision.addBall(ball);
+        }
+        double energy = energy(balls);
+
+        for (int tick = 0; tick < 1_000; tick++) {
+            collision.update(TICK);
+        }
+        assertTrue(collision.getResolvedCount() > 500, () -> "Too few collisions to tell anything: " + collision.getResolvedCount());
+        assertEquals(energy, energy(balls), 1e-9 * energy);
+    }
+
+    private static double energy(List<Ball> balls) {
+        double energy = 0;
+        for (Ball ball : balls) {
+            energy += 0.5 * ball.getMass() * (ball.getVx() * ball.getVx() + ball.getVy() * ball.getVy());
+        }
+        return energy;
+    }
+
+    private static Collision arena() {
+        return new Collision(0, 10, 1.0, BroadPhaseType.QUAD_TREE.create(new Rectangle(0, 0, ARENA_SIZE, ARENA_SIZE), 3));
+    }
+
+    /**
+     * Adds a stationary wall along a side of the arena.
+     */
+    private static Wall border(Collision collision, boolean horizontal, double line) {
+        double low  = 10;
+        double high = ARENA_SIZE - 10;
+        Wall wall = horizontal ? new Wall(new Coordinate(ARENA_SIZE / 2, line), 4, 0, false, new Coordinate(high, line), new Coordinate(low, line), null, null)
+                               : new Wall(new Coordinate(line, ARENA_SIZE / 2), 4, 0, false, new Coordinate(line, high), new Coordinate(line, low), null, null);
+        collision.addWall(wall);
+        return wall;
+    }
+}
@@ -0,0 +1,225 @@
+package com.games.jezzball.games.files2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every {@link EventQueueType} through long random sequences of operations and checks each step against a plain map of the pending events, searched by brute force.
+ *
+ * @author Colin Jokisch
+ * @version 1.1
+ */
+class EventQueueTest {
+    private static final int OPERATIONS = 200_000;
+    private static final int OBJECTS    = 40;
+
+    @Test
+    void behavesLikeABruteForceQueue() {
+        for (EventQueueType type : EventQueueType.values()) {
+            for (long seed = 1; seed <= 3; seed++) {
+                run(type.create(), new SplittableRandom(seed), type + " seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    void offerKeepsOneEventPerPairInEitherOrder() {
+        for (EventQueueType type : EventQueueType.values()) {
+            EventQueue queue = type.create();
+            int        slot  = queue.offer(EventQueue.Kind.BALL_BALL, 5, 0, 0, 1, 2, 0, 0);
+            assertEquals(slot, queue.offer(EventQueue.Kind.BALL_BALL, 3, 1, 1, 2, 1, 0, 0), type::toString);
+            assertEquals(slot, queue.offer(EventQueue.Kind.BALL_BALL, 4, 2, 2, 1, 2, 0, 0), type::toString);
+            assertEquals(1, queue.size(), type::toString);
+            assertEquals(3, queue.peekTime(), type::toString);
+            assertEquals(1, queue.getX(slot), type::toString);
+
+            // A ball and a wall with the same id are different objects
+            queue.offer(EventQueue.Kind.BALL_WALL, 6, 0, 0, 2, 1, 0, 0);
+            assertEquals(2, queue.size(), type::toString);
+            assertEquals(1, queue.invalidateWall(1), type::toString);
+            assertEquals(1, queue.invalidateBall(2), type::toString);
+            assertTrue(queue.isEmpty(), type::toString);
+            assertThrows(IllegalStateException.class, queue::poll, type::toString);
+        }
+    }
+
+    private static void run(EventQueue queue, SplittableRandom random, String name) {
+        Map<Integer, Event> pending = new HashMap<>();
+        for (int step = 0; step < OPERATIONS; step++) {
+            // Phases that mostly add alternate with phases that mostly take away, so the queue both grows and drains
+            boolean filling   = (step / 5_000) % 2 == 0;
+            int     operation = random.nextInt(100);
+            if (operation < (filling ? 55 : 25)) {
+                add(queue, random, pending, name);
+            } else if (operation < 70) {
+                poll(queue, pending, name);
+            } else if (operation < 80) {
+                decrease(queue, random, pending);
+            } else if (operation < 87) {
+                remove(queue, random, pending, name);
+            } else if (operation < 90) {
+                removeAll(queue, random, pending, name);
+            } else if (operation < 99) {
+                invalidate(queue, random, pending, name);
+            } else if (random.nextInt(50) == 0) {
+                queue.clear();
+                pending.clear();
+            }
+            assertEquals(pending.size(), queue.size(), name);
+            assertEquals(pending.isEmpty(), queue.isEmpty(), name);
+            if (!pending.isEmpty()) {
+                assertEquals(earliest(pending), queue.peekTime(), name);
+            }
+        }
+        while (!pending.isEmpty()) {
+            poll(queue, pending, name);
+        }
+        assertTrue(queue.isEmpty(), name);
+    }
+
+    private static void add(EventQueue queue, SplittableRandom random, Map<Integer, Event> pending, String name) {
+        EventQueue.Kind kind = EventQueue.Kind.values()[random.nextInt(EventQueue.Kind.values().length)];
+        double          time = random.nextBoolean() ? random.nextInt(50) : random.nextDouble(50);  // Whole times make many ties
+        int             a    = random.nextInt(OBJECTS);
+        int             b    = kind == EventQueue.Kind.RECHECK ? EventQueue.NONE : random.nextInt(OBJECTS);
+        double          x    = random.nextDouble();
+        double          y    = random.nextDouble();
+        int             c1   = random.nextInt(1000);
+        int             c2   = random.nextInt(1000);
+        if (kind == EventQueue.Kind.BALL_BALL && a == b) {
+            return;
+        }
+        if (isKeyedByPair(kind)) {
+            // At most one event per pair, which offer moves forward
+            Integer known = find(pending, kind, a, b);
+            int     slot  = queue.offer(kind, time, x, y, a, b, c1, c2);
+            if (known == null) {
+                assertFalse(pending.containsKey(slot), name);
+                pending.put(slot, new Event(kind, time, x, y, a, b, c1, c2));
+            } else {
+                assertEquals(known.intValue(), slot, name);
+                Event event = pending.get(known);
+                if (time < event.time) {
+                    pending.put(slot, new Event(kind, time, x, y, event.first, event.second, event.count1, event.count2));
+                }
+            }
+        } else {
+            int slot = queue.push(kind, time, x, y, a, b, c1, c2);
+            assertFalse(pending.containsKey(slot), name);
+            pending.put(slot, new Event(kind, time, x, y, a, b, c1, c2));
+        }
+    }
+
+    private static void poll(EventQueue queue, Map<Integer, Event> pending, String name) {
+        if (pending.isEmpty()) {
+            assertThrows(IllegalStateException.class, queue::poll, name);
+            return;
+        }
+        double earliest = earliest(pending);
+        int    slot     = queue.poll();
+        Event  event    = pending.remove(slot);
+        assertNotNull(event, name);
+        assertEquals(earliest, event.time, name);
+        assertEquals(event.kind, queue.getKind(slot), name);
+        assertEquals(event.time, queue.getTime(slot), name);
+        assertEquals(event.x, queue.getX(slot), name);
+        assertEquals(event.y, queue.getY(slot), name);
+        assertEquals(event.first, queue.getFirst(slot), name);
+        assertEquals(event.second, queue.getSecond(slot), name);
+        assertEquals(event.count1, queue.getCount1(slot), name);
+        assertEquals(event.count2, queue.getCount2(slot), name);
+        queue.free(slot);
+    }
+
+    private static void decrease(EventQueue queue, SplittableRandom random, Map<Integer, Event> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Integer> slots = new ArrayList<>(pending.keySet());
+        int           slot  = slots.get(random.nextInt(slots.size()));
+        Event         event = pending.get(slot);
+        double        time  = event.time - random.nextDouble(5);
+        queue.decreaseKey(slot, time);
+        pending.put(slot, new Event(event.kind, time, event.x, event.y, event.first, event.second, event.count1, event.count2));
+        assertThrows(IllegalArgumentException.class, () -> queue.decreaseKey(slot, time + 1));
+    }
+
+    private static void remove(EventQueue queue, SplittableRandom random, Map<Integer, Event> pending, String name) {
+        EventQueue.Kind kind  = random.nextBoolean() ? EventQueue.Kind.BALL_BALL : EventQueue.Kind.BALL_WALL;
+        int             a     = random.nextInt(OBJECTS);
+        int             b     = random.nextInt(OBJECTS);
+        Integer         known = find(pending, kind, a, b);
+        assertEquals(known == null ? EventQueue.NONE : known, queue.find(kind, a, b), name);
+        assertEquals(known != null, queue.remove(kind, a, b), name);
+        if (known != null) {
+            pending.remove(known);
+        }
+    }
+
+    private static void removeAll(EventQueue queue, SplittableRandom random, Map<Integer, Event> pending, String name) {
+        EventQueue.Kind kind     = EventQueue.Kind.values()[random.nextInt(EventQueue.Kind.values().length)];
+        int             id       = random.nextInt(OBJECTS + 5);
+        int             expected = 0;
+        for (var iterator = pending.values().iterator(); iterator.hasNext(); ) {
+            Event event = iterator.next();
+            if (event.kind == kind && event.first == id) {
+                iterator.remove();
+                expected++;
+            }
+        }
+        assertEquals(expected, queue.removeAll(kind, id), name);
+    }
+
+    private static void invalidate(EventQueue queue, SplittableRandom random, Map<Integer, Event> pending, String name) {
+        boolean ball     = random.nextBoolean();
+        int     id       = random.nextInt(OBJECTS + 5);  // Also ids the queue has never seen
+        int     expected = 0;
+        for (var iterator = pending.values().iterator(); iterator.hasNext(); ) {
+            Event event = iterator.next();
+            if (event.involves(ball, id)) {
+                iterator.remove();
+                expected++;
+            }
+        }
+        assertEquals(expected, ball ? queue.invalidateBall(id) : queue.invalidateWall(id), name);
+    }
+
+    private static boolean isKeyedByPair(EventQueue.Kind kind) {
+        return kind == EventQueue.Kind.BALL_BALL || kind == EventQueue.Kind.BALL_WALL;
+    }
+
+    private static Integer find(Map<Integer, Event> pending, EventQueue.Kind kind, int a, int b) {
+        for (Map.Entry<Integer, Event> entry : pending.entrySet()) {
+            Event event = entry.getValue();
+            if (event.kind == kind && ((event.first == a && event.second == b) || (kind == EventQueue.Kind.BALL_BALL && event.first == b && event.second == a))) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private static double earliest(Map<Integer, Event> pending) {
+        double earliest = Double.POSITIVE_INFINITY;
+        for (Event event : pending.values()) {
+            earliest = Math.min(earliest, event.time);
+        }
+        return earliest;
+    }
+
+    private record Event(EventQueue.Kind kind, double time, double x, double y, int first, int second, int count1, int count2) {
+        boolean involves(boolean ball, int id) {
+            return (kind.firstIsBall() == ball && first == id) || (second != EventQueue.NONE && kind.secondIsBall() == ball && second == id);
+        }
+    }
+}
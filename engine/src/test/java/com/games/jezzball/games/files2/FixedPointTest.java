@@ -0,0 +1,105 @@
+package com.games.jezzball.games.files2;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the {@link FixedPoint} arithmetic against the same operations carried out exactly on {@link BigInteger}s.
+ *
+ * @author Colin Jokisch
+ * @version 1.0
+ */
+class FixedPointTest {
+    private static final int        SAMPLES = 200_000;
+    private static final BigInteger ONE     = BigInteger.ONE.shiftLeft(FixedPoint.FRACTION_BITS);
+
+    @Test
+    void mulTruncatesTheExactProductTowardsNegativeInfinity() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < SAMPLES; i++) {
+            long       a     = randomFixed(random);
+            long       b     = randomFixed(random);
+            BigInteger exact = floorDiv(BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)), ONE);
+            if (exact.bitLength() < Long.SIZE) {
+                assertEquals(exact.longValue(), FixedPoint.mul(a, b), () -> a + " * " + b);
+            } else {
+                assertThrows(ArithmeticException.class, () -> FixedPoint.mul(a, b), () -> a + " * " + b);
+            }
+        }
+    }
+
+    @Test
+    void divTruncatesTheExactQuotientTowardsZero() {
+        SplittableRandom random = new SplittableRandom(2);
+        for (int i = 0; i < SAMPLES; i++) {
+            long a = randomFixed(random);
+            long b = randomFixed(random);
+            if (b == 0) {
+                continue;
+            }
+            BigInteger exact = BigInteger.valueOf(a).shiftLeft(FixedPoint.FRACTION_BITS).divide(BigInteger.valueOf(b));  // BigInteger division truncates towards zero
+            if (exact.bitLength() < Long.SIZE) {
+                assertEquals(exact.longValue(), FixedPoint.div(a, b), () -> a + " / " + b);
+            } else {
+                assertThrows(ArithmeticException.class, () -> FixedPoint.div(a, b), () -> a + " / " + b);
+            }
+        }
+        assertThrows(ArithmeticException.class, () -> FixedPoint.div(FixedPoint.ONE, 0));
+    }
+
+    @Test
+    void sqrtTruncatesTheExactRoot() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < SAMPLES; i++) {
+            long a = Math.abs(randomFixed(random));
+            assertEquals(BigInteger.valueOf(a).shiftLeft(FixedPoint.FRACTION_BITS).sqrt().longValueExact(), FixedPoint.sqrt(a), () -> "sqrt " + a);
+
+            long       high   = random.nextLong() >>> 6;  // Below 2^122 as a whole
+            long       low    = random.nextLong();
+            BigInteger number = BigInteger.valueOf(high).shiftLeft(Long.SIZE).add(new BigInteger(Long.toUnsignedString(low)));
+            assertEquals(number.sqrt().longValueExact(), FixedPoint.sqrt(high, low), () -> "sqrt " + number);
+        }
+        assertEquals(0, FixedPoint.sqrt(0));
+        assertEquals(FixedPoint.ONE, FixedPoint.sqrt(FixedPoint.ONE));
+        assertEquals(2 * FixedPoint.ONE, FixedPoint.sqrt(4 * FixedPoint.ONE));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.sqrt(-1));
+    }
+
+    @Test
+    void doublesOnTheGridConvertBothWaysWithoutLoss() {
+        SplittableRandom random = new SplittableRandom(4);
+        for (int i = 0; i < SAMPLES; i++) {
+            long   value    = random.nextLong() >> 22;  // Below 2^21 in magnitude
+            double asDouble = FixedPoint.toDouble(value);
+            assertEquals(value, FixedPoint.fromDouble(asDouble));
+            assertTrue(FixedPoint.isExact(asDouble));
+
+            double any     = random.nextDouble(-1e6, 1e6);
+            double rounded = FixedPoint.round(any);
+            double ceiling = FixedPoint.ceil(any);
+            assertTrue(FixedPoint.isExact(rounded) && FixedPoint.isExact(ceiling));
+            assertTrue(Math.abs(rounded - any) <= 0.5 / FixedPoint.ONE, () -> "round " + any);
+            assertTrue(ceiling >= any && ceiling - any < 1.0 / FixedPoint.ONE, () -> "ceil " + any);
+        }
+        assertThrows(ArithmeticException.class, () -> FixedPoint.fromDouble(Double.NaN));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.fromDouble(1e300));
+    }
+
+    /**
+     * Draws a fixed-point number whose magnitude spreads over many orders, so that both small results and overflows come up.
+     */
+    private static long randomFixed(SplittableRandom random) {
+        return random.nextLong() >> random.nextInt(16, 48);
+    }
+
+    private static BigInteger floorDiv(BigInteger dividend, BigInteger divisor) {
+        BigInteger[] quotientAndRemainder = dividend.divideAndRemainder(divisor);
+        return dividend.signum() < 0 && quotientAndRemainder[1].signum() != 0 ? quotientAndRemainder[0].subtract(BigInteger.ONE) : quotientAndRemainder[0];
+    }
+}
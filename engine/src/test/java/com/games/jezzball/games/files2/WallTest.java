@@ -0,0 +1,202 @@
+package com.games.jezzball.games.files2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link Wall#willCollideWithWallEnd1(Wall)} and {@link Wall#willCollideWithWallEnd2(Wall)} against a brute-force search that grows both walls in small steps with {@link Wall#update(double)}
+ * until the end meets the other wall.
+ *
+ * @author Colin Jokisch
+ * @version 1.1
+ */
+class WallTest {
+    private static final int    CASES    = 400;
+    private static final double STRIDE   = 1e-2;  // The distance the ends close in on each other in a step, at most
+    private static final double SIZE     = 4;
+    private static final int    MAX_RATE = 50;
+
+    @Test
+    void endMeetsAWallAcrossItsPathWhenSteppingDoes() {
+        SplittableRandom random   = new SplittableRandom(1);
+        int              contacts = 0;
+        for (int i = 0; i < CASES; i++) {
+            boolean horizontal = random.nextBoolean();
+            Wall    wall       = randomGrowingWall(horizontal, random);
+            double  position   = random.nextDouble(100, 900);
+            Wall    other      = randomWall(!horizontal, position, random);
+            for (boolean end1 : new boolean[] {true, false}) {
+                if (check(copy(wall), copy(other), end1)) {
+                    contacts++;
+                }
+            }
+        }
+        assertTrue(contacts > CASES / 10, () -> "Too few of the random cases collide to tell anything");
+    }
+
+    @Test
+    void endMeetsAWallOnItsLineWhenSteppingDoes() {
+        SplittableRandom random   = new SplittableRandom(2);
+        int              contacts = 0;
+        for (int i = 0; i < CASES; i++) {
+            boolean horizontal = random.nextBoolean();
+            Wall    wall       = randomGrowingWall(horizontal, random);
+            double  line       = lineOf(wall) + random.nextDouble(-SIZE, SIZE);  // Overlapping the thickness of the wall
+            boolean beyondEnd1 = random.nextBoolean();
+            double  from       = beyondEnd1 ? along(wall, wall.getTarget1()) - random.nextDouble(-50, 200) : along(wall, wall.getTarget2()) + random.nextDouble(-50, 200);
+            double  to         = beyondEnd1 ? from + random.nextDouble(10, 300) : from - random.nextDouble(10, 300);
+            if ((to - from) * (from - along(wall, wall.getPosition())) <= 0 || Math.abs(from - along(wall, wall.getPosition())) < 1) {
+                continue;  // The other wall should lie wholly to one side of the start
+            }
+            Wall other = sameLineWall(horizontal, line, from, to, random);
+            if (check(copy(wall), copy(other), beyondEnd1)) {
+                contacts++;
+            }
+        }
+        assertTrue(contacts > CASES / 10, () -> "Too few of the random cases collide to tell anything");
+    }
+
+    @Test
+    void noContactWithItselfOrOnceStopped() {
+        Wall wall = new Wall(new Coordinate(100, 100), SIZE, 10, true, new Coordinate(200, 100), new Coordinate(0, 100), null, null);
+        Wall post = new Wall(new Coordinate(150, 100), SIZE, 0, false, new Coordinate(150, 200), new Coordinate(150, 0), null, null);
+        assertFalse(wall.willCollideWithWallEnd1(wall).isPresent());
+        assertTrue(wall.willCollideWithWallEnd1(post).isPresent());
+        assertFalse(wall.willCollideWithWallEnd2(post).isPresent());
+        wall.stopGrowing();
+        assertFalse(wall.willCollideWithWallEnd1(post).isPresent());
+    }
+
+    @Test
+    void endAHairShortOfItsTargetStillMoves() {
+        Wall wall = new Wall(new Coordinate(0, 0), SIZE, 1, true, new Coordinate(10, 0), new Coordinate(-10, 0), null, null);
+        wall.update(10 - 1e-9);
+        assertFalse(wall.hasReachedEnd1());
+        assertEquals(1, wall.getEndVelocity(true));
+        assertTrue(wall.getEndStopTime(true) > 0);
+        assertTrue(wall.willReachTarget1().isPresent());
+
+        wall.update(1);
+        assertTrue(wall.hasReachedEnd1() && wall.hasReachedEnd2());
+        assertEquals(0, wall.getEndVelocity(true));
+        assertEquals(0, wall.getEndStopTime(true));
+    }
+
+    /**
+     * Compares the prediction for one end with stepping, returning whether the end meets the other wall.
+     */
+    private static boolean check(Wall wall, Wall other, boolean end1) {
+        Optional<CollisionDetail<Wall, Wall>> predicted = end1 ? wall.willCollideWithWallEnd1(other) : wall.willCollideWithWallEnd2(other);
+        double                                step      = STRIDE / (wall.getGrowthRate() + other.getGrowthRate());
+        double                                stepped   = stepUntilContact(copy(wall), copy(other), end1, step);
+        String                                name      = describe(wall, other, end1, predicted, stepped);
+        if (stepped == Double.POSITIVE_INFINITY) {
+            assertFalse(predicted.isPresent(), name);
+            return false;
+        }
+        assertTrue(predicted.isPresent(), name);
+        double time = predicted.get().timeToCollision();
+        assertTrue(time <= stepped + 1e-9 && time >= stepped - step - 1e-9, name);
+
+        // The end stops where it is at that time
+        double expected = wall.getEndPosition(end1) + wall.getEndVelocity(end1) * time;
+        assertEquals(expected, along(wall, new Coordinate(predicted.get().collisionX(), predicted.get().collisionY())), 1e-9, name);
+        return true;
+    }
+
+    /**
+     * Grows both walls until the end reaches the other wall: the near face of a wall across its path while that wall spans the thickness of this one, or the facing end of a wall on its line.
+     *
+     * @return The first time of a step at which the end met the other wall, or infinite if it stops or passes without meeting it.
+     */
+    private static double stepUntilContact(Wall wall, Wall other, boolean end1, double step) {
+        int     direction = wall.getEndDirection(end1);
+        double  center    = lineOf(wall);
+        boolean across    = other.getOrientation() != wall.getOrientation();
+        double  face      = lineOf(other) - direction * other.getSize() / 2;
+        if (across && direction * (wall.getEndPosition(end1) - face) > 0) {
+            return Double.POSITIVE_INFINITY;  // Already past the other wall
+        }
+        for (long steps = 0; ; steps++) {
+            double tip = wall.getEndPosition(end1);
+            if (across ? direction * (tip - face) >= 0 : direction * (facingEnd(other, direction) - tip) <= 0) {
+                double  first  = other.getEndPosition(true);
+                double  second = other.getEndPosition(false);
+                boolean spans  = !across || (Math.max(first, second) >= center - SIZE / 2 && Math.min(first, second) <= center + SIZE / 2);
+                return spans ? steps * step : Double.POSITIVE_INFINITY;
+            }
+            if (wall.getEndVelocity(end1) == 0) {
+                return Double.POSITIVE_INFINITY;  // Stopped at its target without meeting the other wall
+            }
+            wall.update(step);
+            other.update(step);
+        }
+    }
+
+    private static double facingEnd(Wall other, int direction) {
+        return other.getEndDirection(true) != direction ? other.getEndPosition(true) : other.getEndPosition(false);
+    }
+
+    private static Wall randomGrowingWall(boolean horizontal, SplittableRandom random) {
+        double line  = random.nextDouble(100, 900);
+        double start = random.nextDouble(300, 700);
+        double high  = start + random.nextDouble(10, 300);
+        double low   = start - random.nextDouble(10, 300);
+        return create(horizontal, line, start, high, low, 1 + random.nextInt(MAX_RATE), true);
+    }
+
+    /**
+     * Creates a wall across the given position, stationary or growing from a point, that may or may not reach across the path of another wall.
+     */
+    private static Wall randomWall(boolean horizontal, double position, SplittableRandom random) {
+        double  start   = random.nextDouble(100, 900);
+        double  high    = start + random.nextDouble(5, 400);
+        double  low     = start - random.nextDouble(5, 400);
+        boolean growing = random.nextBoolean();
+        return create(horizontal, position, start, high, low, growing ? 1 + random.nextInt(MAX_RATE) : 0, growing);
+    }
+
+    /**
+     * Creates a wall on the given line, from one point towards another, stationary or growing from the first.
+     */
+    private static Wall sameLineWall(boolean horizontal, double line, double from, double to, SplittableRandom random) {
+        boolean growing = random.nextBoolean();
+        double  start   = growing ? from : (from + to) / 2;
+        return create(horizontal, line, start, Math.max(from, to), Math.min(from, to), growing ? 1 + random.nextInt(MAX_RATE) : 0, growing);
+    }
+
+    private static Wall create(boolean horizontal, double line, double start, double high, double low, int rate, boolean growing) {
+        return new Wall(point(horizontal, start, line), SIZE, rate, growing, point(horizontal, high, line), point(horizontal, low, line), null, null);
+    }
+
+    /**
+     * Copies a wall that has not changed since it was created.
+     */
+    private static Wall copy(Wall wall) {
+        return new Wall(wall.getPosition(), wall.getSize(), (int) wall.getGrowthRate(), wall.isGrowing(), wall.getTarget1(), wall.getTarget2(), null, null);
+    }
+
+    private static Coordinate point(boolean horizontal, double along, double line) {
+        return horizontal ? new Coordinate(along, line) : new Coordinate(line, along);
+    }
+
+    private static double along(Wall wall, Coordinate coordinate) {
+        return wall.getOrientation() == Wall.Orientation.HORIZONTAL ? coordinate.x() : coordinate.y();
+    }
+
+    private static double lineOf(Wall wall) {
+        return wall.getOrientation() == Wall.Orientation.HORIZONTAL ? wall.getPosition().y() : wall.getPosition().x();
+    }
+
+    private static String describe(Wall wall, Wall other, boolean end1, Optional<CollisionDetail<Wall, Wall>> predicted, double stepped) {
+        return "end " + (end1 ? 1 : 2) + " of " + wall.getPosition() + " towards " + wall.getTarget1() + " " + wall.getTarget2() + " at " + wall.getGrowthRate() + ", other " + other.getPosition()
+               + " " + other.getCurrentEnd1() + " " + other.getCurrentEnd2() + " towards " + other.getTarget1() + " " + other.getTarget2() + " at " + other.getGrowthRate() + ": predicted "
+               + predicted.map(CollisionDetail::timeToCollision).orElse(Double.POSITIVE_INFINITY) + ", stepped " + stepped;
+    }
+}